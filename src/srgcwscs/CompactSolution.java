@@ -0,0 +1,162 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+/**
+* @class CompactSolution srgcwscs.CompactSolution
+*
+* @brief This class represents a solution of a VRP instance as a giant tour: its costs, the
+* customers of all routes one after the other and the position where each route starts.
+*
+* @remarks Customers are positions in the node list of the instance. The Solution, Route and Edge
+* objects are only built when toSolution() is called, e.g. when the solution is reported.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class CompactSolution
+{
+	/**
+     * @brief Workspace of the instance, used to build the Solution objects
+     */
+	private CwsWorkspace workspace;
+
+	/**
+     * @brief Solution costs
+     */
+	private float costs;
+
+	/**
+     * @brief Customers of all routes, route after route
+     */
+	private int[] tour;
+
+	/**
+     * @brief Position in the tour of the first customer of each route, followed by the tour length
+     */
+	private int[] routeStarts;
+
+	/**
+     * @brief Elapsed computational time (in seconds)
+     */
+	private double time;
+
+	/**
+     * @brief Solution objects, built on the first call to toSolution()
+     */
+	private Solution solution;
+
+	/**
+	* @brief CompactSolution Constructor
+	*
+	* @param instanceWorkspace - CwsWorkspace workspace of the instance
+	*
+	* @param solutionCosts - float solution costs
+	*
+	* @param giantTour - int[] customers of all routes, route after route
+	*
+	* @param starts - int[] position of the first customer of each route, followed by the tour length
+	*/
+	CompactSolution(CwsWorkspace instanceWorkspace, float solutionCosts, int[] giantTour, int[] starts)
+	{
+		workspace = instanceWorkspace;
+		costs = solutionCosts;
+		tour = giantTour;
+		routeStarts = starts;
+		time = 0;
+	}
+
+	/**
+	* @brief Gets the solution costs
+	*
+	* @return float - solution costs
+	*/
+	public float getCosts()
+	{
+		return costs;
+	}
+
+	/**
+	* @brief Gets the number of routes
+	*
+	* @return int - number of routes
+	*/
+	public int getNRoutes()
+	{
+		return routeStarts.length - 1;
+	}
+
+	/**
+	* @brief Gets the position in the tour of the first customer of a route
+	*
+	* @param r - int route index (getNRoutes() gives the tour length)
+	*
+	* @return int - position in the tour
+	*/
+	public int getRouteStart(int r)
+	{
+		return routeStarts[r];
+	}
+
+	/**
+	* @brief Gets the giant tour
+	*
+	* @return int[] - customers of all routes, route after route
+	*/
+	public int[] getTour()
+	{
+		return tour;
+	}
+
+	/**
+	* @brief Updates the time the solution was found at
+	*
+	* @param time - double elapsed time in seconds
+	*/
+	public void setTime(double time)
+	{
+		this.time = time;
+	}
+
+	/**
+	* @brief Gets the time the solution was found at
+	*
+	* @return double - elapsed time in seconds
+	*/
+	public double getTime()
+	{
+		return time;
+	}
+
+	/**
+	* @brief Gets the Solution, Route and Edge objects of the solution, building them on the first call
+	*
+	* @return Solution - solution objects
+	*/
+	public Solution toSolution()
+	{
+		if (solution == null)
+		{
+			solution = workspace.toSolution(this);
+		}
+		solution.setTime(time);
+		return solution;
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+* @class CostMatrix srgcwscs.CostMatrix
+*
+* @brief This class represents an external matrix of travel costs between nodes (e.g. computed over a
+* road network), which may be asymmetric. Node 0 is the depot.
+*
+* @remarks Binary file format, little-endian:
+* int magic ("CWSM"), int version, int n, int format (0 dense, 1 sparse), followed either by the
+* n x n costs as doubles in row-major order (dense) or by a long number of entries and then one
+* (int i, int j, double cost) record per entry (sparse). Pairs missing in a sparse matrix cost
+* infinity, so they are never used by a merge. The file is read through a FileChannel in large
+* chunks and bulk-copied into a primitive array. The sparse format only saves disk space: in memory
+* every matrix is dense, n x n doubles, so it is limited to instances whose matrix fits in an array.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class CostMatrix
+{
+	/**
+     * @brief Magic number of the cost matrix files ("CWSM")
+     */
+	private static final int MAGIC = 0x4357534D;
+
+	/**
+     * @brief File format version
+     */
+	private static final int VERSION = 1;
+
+	/**
+     * @brief Dense format identifier
+     */
+	public static final int DENSE = 0;
+
+	/**
+     * @brief Sparse format identifier
+     */
+	public static final int SPARSE = 1;
+
+	/**
+     * @brief Size of the chunks read from the file
+     */
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	/**
+     * @brief Size of a sparse entry in bytes: i, j, cost
+     */
+	private static final int SPARSE_ENTRY_SIZE = 16;
+
+	/**
+     * @brief Number of nodes
+     */
+	private int n;
+
+	/**
+     * @brief Costs in row-major order, costs[i * n + j] is the cost of going from i to j
+     */
+	private double[] costs;
+
+	/**
+     * @brief true if some cost from i to j differs from the cost from j to i
+     */
+	private boolean asymmetric;
+
+	/**
+	* @brief CostMatrix Constructor
+	*
+	* @param nNodes - int number of nodes, depot included
+	*
+	* @param rowMajorCosts - double[] costs in row-major order
+	*/
+	public CostMatrix(int nNodes, double[] rowMajorCosts)
+	{
+		n = nNodes;
+		costs = rowMajorCosts;
+		asymmetric = false;
+		for (int i = 0; i < n && !asymmetric; i++)
+		{
+			for (int j = i + 1; j < n; j++)
+			{
+				if (costs[i * n + j] != costs[j * n + i])
+				{
+					asymmetric = true;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	* @brief Loads a cost matrix from a binary file
+	*
+	* @param path - String path of the file
+	*
+	* @return CostMatrix - loaded matrix
+	*
+	* @throws IOException if the file can not be read or its format is not valid
+	*/
+	public static CostMatrix load(String path) throws IOException
+	{
+		FileInputStream in = new FileInputStream(path);
+		try
+		{
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.limit(16);
+			fill(channel, buffer);
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			{
+				throw new IOException("Not a cost matrix file: " + path);
+			}
+			int size = buffer.getInt();
+			int format = buffer.getInt();
+			if (size <= 0)
+			{
+				throw new IOException("Cost matrix of " + size + " nodes is not valid: " + path);
+			}
+			if ((long) size * size > Integer.MAX_VALUE)
+			{
+				throw new IOException("Cost matrix of " + size + " nodes is too large: " + path);
+			}
+			double[] values = new double[size * size];
+
+			if (format == DENSE)
+			{
+				int k = 0;
+				while (k < values.length)
+				{
+					int count = Math.min(CHUNK_SIZE / 8, values.length - k);
+					buffer.clear();
+					buffer.limit(count * 8);
+					fill(channel, buffer);
+					buffer.asDoubleBuffer().get(values, k, count);
+					k += count;
+				}
+			}
+			else if (format == SPARSE)
+			{
+				Arrays.fill(values, Double.POSITIVE_INFINITY);
+				for (int i = 0; i < size; i++)
+				{
+					values[i * size + i] = 0;
+				}
+				buffer.clear();
+				buffer.limit(8);
+				fill(channel, buffer);
+				long nEntries = buffer.getLong();
+				long k = 0;
+				while (k < nEntries)
+				{
+					int count = (int) Math.min(CHUNK_SIZE / SPARSE_ENTRY_SIZE, nEntries - k);
+					buffer.clear();
+					buffer.limit(count * SPARSE_ENTRY_SIZE);
+					fill(channel, buffer);
+					for (int e = 0; e < count; e++)
+					{
+						int i = buffer.getInt();
+						int j = buffer.getInt();
+						if (i < 0 || i >= size || j < 0 || j >= size)
+						{
+							throw new IOException("Cost matrix entry (" + i + ", " + j + ") out of the " + size + " nodes: " + path);
+						}
+						values[i * size + j] = buffer.getDouble();
+					}
+					k += count;
+				}
+			}
+			else
+			{
+				throw new IOException("Unknown cost matrix format " + format + " in " + path);
+			}
+			return new CostMatrix(size, values);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	* @brief Reads from a channel until the buffer is full and flips it for reading
+	*/
+	private static void fill(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer) < 0)
+			{
+				throw new IOException("Unexpected end of cost matrix file");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	* @brief Writes the matrix to a binary file in dense format
+	*
+	* @param path - String path of the file
+	*
+	* @throws IOException if the file can not be written
+	*/
+	public void write(String path) throws IOException
+	{
+		FileOutputStream out = new FileOutputStream(path);
+		try
+		{
+			FileChannel channel = out.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(DENSE);
+			buffer.flip();
+			drain(channel, buffer);
+			int k = 0;
+			while (k < costs.length)
+			{
+				int count = Math.min(CHUNK_SIZE / 8, costs.length - k);
+				buffer.clear();
+				buffer.asDoubleBuffer().put(costs, k, count);
+				buffer.limit(count * 8);
+				drain(channel, buffer);
+				k += count;
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	* @brief Writes the whole content of a buffer to a channel
+	*/
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	* @brief Gets the number of nodes
+	*
+	* @return int - number of nodes, depot included
+	*/
+	public int getSize()
+	{
+		return n;
+	}
+
+	/**
+	* @brief Gets the cost of going from a node to another one
+	*
+	* @param i - int origin node
+	*
+	* @param j - int end node
+	*
+	* @return double - travel cost
+	*/
+	public double getCost(int i, int j)
+	{
+		return costs[i * n + j];
+	}
+
+	/**
+	* @brief Checks whether the matrix is asymmetric
+	*
+	* @return boolean - true if some cost from i to j differs from the cost from j to i
+	*/
+	public boolean isAsymmetric()
+	{
+		return asymmetric;
+	}
+}
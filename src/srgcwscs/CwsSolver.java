@@ -0,0 +1,81 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+/**
+* @interface CwsSolver srgcwscs.CwsSolver
+*
+* @brief This interface represents a (randomized) Clarke & Wright Savings engine that builds a
+* solution from a savings list held in an array of edges.
+*
+* @remarks RandCWS implements the parallel version, where routes are merged in any order, and
+* SequentialCWS the sequential one, where one route is grown at a time. Solutions are built in the
+* workspace of the engine, the objects are only created on demand.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public interface CwsSolver
+{
+	/**
+	* @brief Solves the VRP and builds the objects of the solution
+	*
+	* @param effList - Edge[] savings list
+	*
+	* @param useRandomSelection - boolean false for the deterministic version of the engine
+	*
+	* @return Solution - Set of nodes that resolves the VRP problem
+	*/
+	Solution solve(Edge[] effList, boolean useRandomSelection);
+
+	/**
+	* @brief Solves the VRP in the workspace of the engine, abandoning the iteration as soon as it can not improve a given solution
+	*
+	* @param effList - Edge[] savings list
+	*
+	* @param useRandomSelection - boolean false for the deterministic version of the engine
+	*
+	* @param incumbentCosts - float costs of the best solution so far (Float.POSITIVE_INFINITY for none)
+	*
+	* @return float - costs of the solution, Float.POSITIVE_INFINITY if the iteration has been abandoned
+	*/
+	float solveInWorkspace(Edge[] effList, boolean useRandomSelection, float incumbentCosts);
+
+	/**
+	* @brief Restores the CWS initial (dummy) solution in the workspace of the engine
+	*
+	* @return float - costs of the dummy solution
+	*/
+	float resetWorkspace();
+
+	/**
+	* @brief Builds the Solution object of the last solution found in the workspace
+	*
+	* @return Solution - Set of nodes that resolves the VRP problem
+	*/
+	Solution getWorkspaceSolution();
+
+	/**
+	* @brief Encodes the last solution found in the workspace as a giant tour
+	*
+	* @return CompactSolution - costs, customers route after route and route starts
+	*/
+	CompactSolution getWorkspaceEncoding();
+}
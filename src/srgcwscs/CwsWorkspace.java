@@ -0,0 +1,886 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+
+/**
+* @class CwsWorkspace srgcwscs.CwsWorkspace
+*
+* @brief This class holds the state of a CWS construction (routes, demands, costs) in primitive
+* arrays allocated once per instance, so a solver can run any number of iterations without
+* creating objects.
+*
+* @remarks Nodes are referred to by their position in the node list of the instance, the depot
+* being position 0. Each route is a chain of customers identified by a slot, the position of one
+* of its customers. Route membership is a union-find forest (path halving, union by size) whose
+* roots are the slots, so finding the route of a node and merging two routes take nearly constant
+* time. Links carry no direction: every customer keeps its two neighbours (0 for the
+* depot) and the route keeps its first and last customers, so merging two routes is a constant
+* time splice and a route is reversed just by swapping its ends. The merging conditions are the
+* ones of RandCWS.checkMergingConditions(). A Solution is only built on demand by toSolution().
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class CwsWorkspace
+{
+	/**
+     * @brief Offset of the timing of the routes traversed from their last customer to their first one
+     */
+	private static final int BACKWARD = 3;
+
+	/**
+     * @brief Nodes of the instance, the depot in position 0
+     */
+	private Node[] nodes;
+
+	/**
+     * @brief Position in the node list of each node id
+     */
+	private int[] index;
+
+	/**
+     * @brief External cost matrix (null for euclidean costs)
+     */
+	private CostMatrix costMatrix;
+
+	/**
+     * @brief true if routes can not be reversed (asymmetric cost matrix)
+     */
+	private boolean directed;
+
+	/**
+     * @brief Capacity classes of the fleet and vehicles available in the current solution
+     */
+	private Fleet fleet;
+
+	/**
+     * @brief Maximum route costs
+     */
+	private int maxRouteCost;
+
+	/**
+     * @brief Service costs per customer
+     */
+	private int serviceCosts;
+
+	/**
+     * @brief Costs from the depot to each node
+     */
+	private double[] depotCosts;
+
+	/**
+     * @brief Costs from each node to the depot
+     */
+	private double[] returnCosts;
+
+	/**
+     * @brief Demand of each node
+     */
+	private int[] demands;
+
+	/**
+     * @brief Costs of the CWS initial (dummy) solution
+     */
+	private double dummyCosts;
+
+	/**
+     * @brief Dummy solution template: position of each node (its own route slot, first and last customer)
+     */
+	private int[] identity;
+
+	/**
+     * @brief Dummy solution template: no neighbours
+     */
+	private int[] noLinks;
+
+	/**
+     * @brief Dummy solution template: one customer per route
+     */
+	private int[] singleSizes;
+
+	/**
+     * @brief Dummy solution template: costs of the route from the depot to each customer and back
+     */
+	private double[] dummyRouteCosts;
+
+	/**
+     * @brief Dummy solution template: duration, earliest and latest start time of each customer (null without time windows)
+     */
+	private double[][] singleTiming;
+
+	/**
+     * @brief Dummy solution template: the smallest class that can carry each customer (-1 for none)
+     */
+	private int[] singleVehicles;
+
+	/**
+     * @brief Dummy solution template: availability of the fleet once every customer holds its vehicle
+     */
+	private Fleet dummyFleet;
+
+	/**
+     * @brief Minimum number of routes, given by the total demand and the largest vehicle capacity
+     */
+	private int minRoutes;
+
+	/**
+     * @brief One neighbour of each node in its route (0 for the depot)
+     */
+	private int[] link1;
+
+	/**
+     * @brief The other neighbour of each node in its route (0 for the depot)
+     */
+	private int[] link2;
+
+	/**
+     * @brief Parent of each node in the union-find forest of routes (a slot is its own parent)
+     */
+	private int[] parent;
+
+	/**
+     * @brief First customer of each route slot
+     */
+	private int[] head;
+
+	/**
+     * @brief Last customer of each route slot
+     */
+	private int[] tail;
+
+	/**
+     * @brief Number of customers of each route slot, the rank of the union by size
+     */
+	private int[] size;
+
+	/**
+     * @brief Demand of each route slot
+     */
+	private int[] routeDemand;
+
+	/**
+     * @brief Capacity class of the vehicle of each route slot (-1 for none, e.g. a customer no vehicle can carry)
+     */
+	private int[] vehicleClass;
+
+	/**
+     * @brief Duration, earliest and latest start time of each route slot, from its first customer to its last one
+     * and then BACKWARD (see RouteTiming, null without time windows)
+     */
+	private double[][] timing;
+
+	/**
+     * @brief Costs of each route slot
+     */
+	private double[] routeCosts;
+
+	/**
+     * @brief Number of routes
+     */
+	private int nRoutes;
+
+	/**
+     * @brief Total costs of the routes
+     */
+	private double costs;
+
+	/**
+     * @brief Saved state: link1, link2, parent, head, tail, size, routeDemand and vehicleClass (null until saveCheckpoint() is called)
+     */
+	private int[][] checkpointArrays;
+
+	/**
+     * @brief Saved state: timing of each route slot
+     */
+	private double[][] checkpointTiming;
+
+	/**
+     * @brief Saved state: vehicles available
+     */
+	private Fleet checkpointFleet;
+
+	/**
+     * @brief Saved state: costs of each route slot
+     */
+	private double[] checkpointRouteCosts;
+
+	/**
+     * @brief Saved state: number of routes
+     */
+	private int checkpointNRoutes;
+
+	/**
+     * @brief Saved state: total costs of the routes
+     */
+	private double checkpointCosts;
+
+	/**
+	* @brief CwsWorkspace Constructor, allocates the arrays for an instance
+	*
+	* @param inputs - Inputs nodes, vehicles and costs of the instance
+	*
+	* @param test - Test route costs constraints
+	*/
+	public CwsWorkspace(Inputs inputs, Test test)
+	{
+		nodes = inputs.getNodeList();
+		costMatrix = inputs.getCostMatrix();
+		directed = costMatrix != null && costMatrix.isAsymmetric();
+		fleet = new Fleet(inputs.getFleet());
+		maxRouteCost = test.getMaxRouteCost();
+		serviceCosts = test.getServiceCosts();
+
+		int n = nodes.length;
+		int maxId = 0;
+		for (int i = 0; i < n; i++)
+		{
+			maxId = Math.max(maxId, nodes[i].getId());
+		}
+		index = new int[maxId + 1];
+		for (int i = 0; i < n; i++)
+		{
+			index[nodes[i].getId()] = i;
+		}
+
+		depotCosts = new double[n];
+		returnCosts = new double[n];
+		demands = new int[n];
+		identity = new int[n];
+		noLinks = new int[n];
+		singleSizes = new int[n];
+		singleVehicles = new int[n];
+		singleVehicles[0] = -1; // the depot is not a route
+		dummyFleet = new Fleet(fleet);
+		dummyRouteCosts = new double[n];
+		dummyCosts = 0;
+		long totalDemand = 0;
+		for (int i = 1; i < n; i++) // position 0 is the depot
+		{
+			depotCosts[i] = calcCosts(0, i);
+			returnCosts[i] = calcCosts(i, 0);
+			demands[i] = nodes[i].getDemand();
+			identity[i] = i;
+			singleSizes[i] = 1;
+			dummyRouteCosts[i] = depotCosts[i] + returnCosts[i];
+			dummyCosts += dummyRouteCosts[i];
+			singleVehicles[i] = fleet.classOf(demands[i]);
+			if (singleVehicles[i] >= 0)
+			{
+				dummyFleet.take(singleVehicles[i]); // even beyond the vehicles of the class
+			}
+			totalDemand += demands[i];
+		}
+		int vCap = fleet.getMaxCapacity();
+		minRoutes = (int) Math.max(1, Math.min(n - 1, (totalDemand + vCap - 1) / Math.max(1, vCap)));
+
+		link1 = new int[n];
+		link2 = new int[n];
+		parent = new int[n];
+		head = new int[n];
+		tail = new int[n];
+		size = new int[n];
+		routeDemand = new int[n];
+		vehicleClass = new int[n];
+		routeCosts = new double[n];
+		boolean timeWindows = false;
+		for (int i = 0; i < n; i++)
+		{
+			timeWindows |= nodes[i].hasTimeWindow();
+		}
+		if (timeWindows)
+		{
+			singleTiming = new double[BACKWARD][n];
+			for (int i = 1; i < n; i++)
+			{
+				singleTiming[0][i] = nodes[i].getServiceTime();
+				singleTiming[1][i] = nodes[i].getReadyTime();
+				singleTiming[2][i] = nodes[i].getDueTime();
+			}
+			timing = new double[2 * BACKWARD][n];
+		}
+		reset();
+	}
+
+	/**
+	* @brief Restores the CWS initial (dummy) solution, one route from the depot to each customer and back
+	*
+	* @remarks The state is copied from templates computed once per instance
+	*/
+	public void reset()
+	{
+		int n = nodes.length;
+		System.arraycopy(noLinks, 0, link1, 0, n);
+		System.arraycopy(noLinks, 0, link2, 0, n);
+		System.arraycopy(identity, 0, parent, 0, n);
+		System.arraycopy(identity, 0, head, 0, n);
+		System.arraycopy(identity, 0, tail, 0, n);
+		System.arraycopy(singleSizes, 0, size, 0, n);
+		System.arraycopy(demands, 0, routeDemand, 0, n);
+		System.arraycopy(singleVehicles, 0, vehicleClass, 0, n);
+		System.arraycopy(dummyRouteCosts, 0, routeCosts, 0, n);
+		if (timing != null)
+		{
+			for (int t = 0; t < timing.length; t++) // both directions of a single customer are the same
+			{
+				System.arraycopy(singleTiming[t % BACKWARD], 0, timing[t], 0, n);
+			}
+		}
+		fleet.copyFrom(dummyFleet);
+		nRoutes = nodes.length - 1;
+		costs = dummyCosts;
+	}
+
+	/**
+	* @brief Saves the current state, e.g. a partial solution several iterations start from
+	*
+	* @see void restoreCheckpoint()
+	*/
+	public void saveCheckpoint()
+	{
+		int n = nodes.length;
+		if (checkpointArrays == null)
+		{
+			checkpointArrays = new int[8][n];
+			checkpointRouteCosts = new double[n];
+			checkpointFleet = new Fleet(fleet);
+			checkpointTiming = timing == null ? null : new double[timing.length][n];
+		}
+		int[][] state = {link1, link2, parent, head, tail, size, routeDemand, vehicleClass};
+		for (int a = 0; a < state.length; a++)
+		{
+			System.arraycopy(state[a], 0, checkpointArrays[a], 0, n);
+		}
+		System.arraycopy(routeCosts, 0, checkpointRouteCosts, 0, n);
+		for (int t = 0; timing != null && t < timing.length; t++)
+		{
+			System.arraycopy(timing[t], 0, checkpointTiming[t], 0, n);
+		}
+		checkpointFleet.copyFrom(fleet);
+		checkpointNRoutes = nRoutes;
+		checkpointCosts = costs;
+	}
+
+	/**
+	* @brief Restores the state saved by the last call to saveCheckpoint()
+	*/
+	public void restoreCheckpoint()
+	{
+		int n = nodes.length;
+		int[][] state = {link1, link2, parent, head, tail, size, routeDemand, vehicleClass};
+		for (int a = 0; a < state.length; a++)
+		{
+			System.arraycopy(checkpointArrays[a], 0, state[a], 0, n);
+		}
+		System.arraycopy(checkpointRouteCosts, 0, routeCosts, 0, n);
+		for (int t = 0; timing != null && t < timing.length; t++)
+		{
+			System.arraycopy(checkpointTiming[t], 0, timing[t], 0, n);
+		}
+		fleet.copyFrom(checkpointFleet);
+		nRoutes = checkpointNRoutes;
+		costs = checkpointCosts;
+	}
+
+	/**
+	* @brief Gets the position in the node list of a node
+	*
+	* @param node - Node of the instance
+	*
+	* @return int - node position
+	*/
+	public int indexOf(Node node)
+	{
+		return index[node.getId()];
+	}
+
+	/**
+	* @brief Gets the costs of going from the depot to a node
+	*
+	* @param i - int node position
+	*
+	* @return double - precomputed costs
+	*/
+	public double getDepotCosts(int i)
+	{
+		return depotCosts[i];
+	}
+
+	/**
+	* @brief Gets the costs of going from a node to the depot
+	*
+	* @param i - int node position
+	*
+	* @return double - precomputed costs
+	*/
+	public double getReturnCosts(int i)
+	{
+		return returnCosts[i];
+	}
+
+	/**
+	* @brief Calculates the costs of going from a node to another one
+	*
+	* @param i - int origin node position
+	*
+	* @param j - int end node position
+	*
+	* @return double - costs taken from the cost matrix, or the euclidean distance
+	*/
+	public double calcCosts(int i, int j)
+	{
+		if (costMatrix != null)
+		{
+			return costMatrix.getCost(nodes[i].getId(), nodes[j].getId());
+		}
+		double Xo = nodes[i].getX();
+		double Yo = nodes[i].getY();
+		double Xe = nodes[j].getX();
+		double Ye = nodes[j].getY();
+		return Math.sqrt((Xe - Xo) * (Xe - Xo) + (Ye - Yo) * (Ye - Yo)); // same as Edge.calcCostsEdge()
+	}
+
+	/**
+	* @brief Checks whether the routes of two nodes can be merged through the edge (i, j)
+	*
+	* @param i - int origin node position
+	*
+	* @param j - int end node position
+	*
+	* @param savings - double savings of the edge
+	*
+	* @return boolean - true if all merging conditions are satisfied
+	*/
+	public boolean canMerge(int i, int j, double savings)
+	{
+		int ri = find(i);
+		int rj = find(j);
+
+		// Condition 1: iR and jR are not the same route
+		if (ri == rj)
+		{
+			return false;
+		}
+
+		// Condition 2: both nodes are exterior nodes in their respective routes
+		if (isInterior(i) || isInterior(j))
+		{
+			return false;
+		}
+
+		// Condition 3: demand after merging can be covered by a single vehicle still available or released by the merge
+		if (fleet.select(routeDemand[ri] + routeDemand[rj], vehicleClass[ri], vehicleClass[rj]) < 0)
+		{
+			return false;
+		}
+
+		// Condition 4: total costs (distance) after merging are feasible
+		if (routeCosts[ri] + routeCosts[rj] - savings > maxRouteCost - serviceCosts * (size[ri] + size[rj]))
+		{
+			return false;
+		}
+
+		// Routes can not be reversed with asymmetric costs: i must be the last customer of iR and j the first one of jR
+		if (directed && (tail[ri] != i || head[rj] != j))
+		{
+			return false;
+		}
+
+		// Condition 5: the merged route arrives in time at every customer and back at the depot
+		if (timing != null && !fitsTimeWindows(i, j, ri, rj))
+		{
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	* @brief Checks the time windows of the route resulting from merging two routes through the edge (i, j)
+	*
+	* @remarks Only the timing of the two routes is used, in the direction they are traversed after the
+	* merge, so the check takes constant time whatever the length of the routes
+	*
+	* @param i - int origin node position
+	*
+	* @param j - int end node position
+	*
+	* @param ri - int route slot of i
+	*
+	* @param rj - int route slot of j
+	*
+	* @return boolean - true if the merged route is feasible
+	*/
+	private boolean fitsTimeWindows(int i, int j, int ri, int rj)
+	{
+		int a = tail[ri] == i ? 0 : BACKWARD; // iR is traversed up to i
+		int b = head[rj] == j ? 0 : BACKWARD; // jR is traversed from j
+		double travel = calcCosts(i, j);
+		if (!RouteTiming.canJoin(timing[a][ri], timing[a + 1][ri], timing[a + 2][ri], travel, timing[b + 1][rj], timing[b + 2][rj]))
+		{
+			return false;
+		}
+		int first = head[ri] == i ? tail[ri] : head[ri];
+		int last = tail[rj] == j ? head[rj] : tail[rj];
+		return RouteTiming.fitsDepot(
+				RouteTiming.joinDuration(timing[a][ri], timing[a + 1][ri], timing[a + 2][ri], travel, timing[b][rj], timing[b + 1][rj], timing[b + 2][rj]),
+				RouteTiming.joinEarliest(timing[a][ri], timing[a + 1][ri], timing[a + 2][ri], travel, timing[b + 1][rj]),
+				RouteTiming.joinLatest(timing[a][ri], timing[a + 1][ri], timing[a + 2][ri], travel, timing[b + 2][rj]),
+				nodes[0], depotCosts[first], returnCosts[last]);
+	}
+
+	/**
+	* @brief Sets the timing of the route resulting from merging two routes through the edge (i, j)
+	*
+	* @param i - int origin node position
+	*
+	* @param j - int end node position
+	*
+	* @param ri - int route slot of i
+	*
+	* @param rj - int route slot of j
+	*
+	* @param kept - int route slot of the merged route (ri or rj)
+	*
+	* @param edgeCosts - double costs of the edge, the travel time from i to j
+	*/
+	private void joinTiming(int i, int j, int ri, int rj, int kept, double edgeCosts)
+	{
+		int a = tail[ri] == i ? 0 : BACKWARD;
+		int b = head[rj] == j ? 0 : BACKWARD;
+		double duration = RouteTiming.joinDuration(timing[a][ri], timing[a + 1][ri], timing[a + 2][ri], edgeCosts, timing[b][rj], timing[b + 1][rj], timing[b + 2][rj]);
+		double earliest = RouteTiming.joinEarliest(timing[a][ri], timing[a + 1][ri], timing[a + 2][ri], edgeCosts, timing[b + 1][rj]);
+		double latest = RouteTiming.joinLatest(timing[a][ri], timing[a + 1][ri], timing[a + 2][ri], edgeCosts, timing[b + 2][rj]);
+
+		// Backwards the merged route is jR traversed up to j and then iR from i, it may arrive late (costs are
+		// symmetric when routes can be reversed, with asymmetric ones this timing is not used)
+		a = BACKWARD - a;
+		b = BACKWARD - b;
+		double backDuration = RouteTiming.joinDuration(timing[b][rj], timing[b + 1][rj], timing[b + 2][rj], edgeCosts, timing[a][ri], timing[a + 1][ri], timing[a + 2][ri]);
+		double backEarliest = RouteTiming.joinEarliest(timing[b][rj], timing[b + 1][rj], timing[b + 2][rj], edgeCosts, timing[a + 1][ri]);
+		double backLatest = RouteTiming.joinLatest(timing[b][rj], timing[b + 1][rj], timing[b + 2][rj], edgeCosts, timing[a + 2][ri]);
+
+		timing[0][kept] = duration;
+		timing[1][kept] = earliest;
+		timing[2][kept] = latest;
+		timing[BACKWARD][kept] = backDuration;
+		timing[BACKWARD + 1][kept] = backEarliest;
+		timing[BACKWARD + 2][kept] = backLatest;
+	}
+
+	/**
+	* @brief Gets the number of customers in the route of a node
+	*
+	* @param i - int node position
+	*
+	* @return int - route size
+	*/
+	public int getRouteSize(int i)
+	{
+		return size[find(i)];
+	}
+
+	/**
+	* @brief Gets the first customer of the route of a node
+	*
+	* @param i - int node position
+	*
+	* @return int - first customer of the route
+	*/
+	public int getRouteHead(int i)
+	{
+		return head[find(i)];
+	}
+
+	/**
+	* @brief Gets the last customer of the route of a node
+	*
+	* @param i - int node position
+	*
+	* @return int - last customer of the route
+	*/
+	public int getRouteTail(int i)
+	{
+		return tail[find(i)];
+	}
+
+	/**
+	* @brief Merges the routes of two nodes through the edge (i, j) if all merging conditions are satisfied
+	*
+	* @param i - int origin node position
+	*
+	* @param j - int end node position
+	*
+	* @param edgeCosts - double costs of the edge
+	*
+	* @param savings - double savings of the edge
+	*
+	* @return boolean - true if the routes have been merged
+	*/
+	public boolean merge(int i, int j, double edgeCosts, double savings)
+	{
+		if (!canMerge(i, j, savings))
+		{
+			return false;
+		}
+		int ri = find(i);
+		int rj = find(j);
+
+		// The merged route goes from the other end of iR to i, and from j to the other end of jR
+		int newHead = head[ri] == i ? tail[ri] : head[ri];
+		int newTail = tail[rj] == j ? head[rj] : tail[rj];
+		int vehicle = fleet.select(routeDemand[ri] + routeDemand[rj], vehicleClass[ri], vehicleClass[rj]);
+		fleet.release(vehicleClass[ri]);
+		fleet.release(vehicleClass[rj]);
+		fleet.take(vehicle);
+		double mergedCosts = routeCosts[ri] + routeCosts[rj] + edgeCosts - returnCosts[i] - depotCosts[j];
+		costs += mergedCosts - routeCosts[ri] - routeCosts[rj];
+
+		// The slot of the smaller route points to the one of the bigger route
+		int kept = size[ri] >= size[rj] ? ri : rj;
+		int absorbed = kept == ri ? rj : ri;
+		parent[absorbed] = kept;
+		if (timing != null)
+		{
+			joinTiming(i, j, ri, rj, kept, edgeCosts); // before the ends of the routes change
+		}
+
+		// Splice the two chains
+		attach(i, j);
+		attach(j, i);
+		head[kept] = newHead;
+		tail[kept] = newTail;
+		size[kept] = size[ri] + size[rj];
+		routeDemand[kept] = routeDemand[ri] + routeDemand[rj];
+		vehicleClass[kept] = vehicle;
+		routeCosts[kept] = mergedCosts;
+		nRoutes--;
+		return true;
+	}
+
+	/**
+	* @brief Finds the route slot of a node
+	*
+	* @remarks Every node visited is linked to its grandparent (path halving)
+	*
+	* @param k - int node position
+	*
+	* @return int - route slot
+	*/
+	public int find(int k)
+	{
+		while (parent[k] != k)
+		{
+			parent[k] = parent[parent[k]];
+			k = parent[k];
+		}
+		return k;
+	}
+
+	/**
+	* @brief Links a customer at the end of a route with a new neighbour
+	*
+	* @param k - int customer connected to the depot
+	*
+	* @param neighbour - int new neighbour
+	*/
+	private void attach(int k, int neighbour)
+	{
+		if (link1[k] == 0)
+		{
+			link1[k] = neighbour;
+		}
+		else
+		{
+			link2[k] = neighbour;
+		}
+	}
+
+	/**
+	* @brief Walks one step along a route
+	*
+	* @param before - int node visited before k (0 for the depot)
+	*
+	* @param k - int current customer
+	*
+	* @return int - the neighbour of k other than before (0 for the depot)
+	*/
+	private int step(int before, int k)
+	{
+		return link1[k] == before ? link2[k] : link1[k];
+	}
+
+	/**
+	* @brief Checks whether two customers are consecutive in a route
+	*
+	* @param i - int node position
+	*
+	* @param j - int node position
+	*
+	* @return boolean - true if i and j are neighbours
+	*/
+	public boolean isLinked(int i, int j)
+	{
+		return link1[i] == j || link2[i] == j;
+	}
+
+	/**
+	* @brief Checks whether a node is an interior node of its route (not connected to the depot)
+	*
+	* @param i - int node position
+	*
+	* @return boolean - true if the node is interior
+	*/
+	public boolean isInterior(int i)
+	{
+		return link1[i] != 0 && link2[i] != 0;
+	}
+
+	/**
+	* @brief Gets the total costs of the current solution
+	*
+	* @return double - sum of the route costs
+	*/
+	public double getCosts()
+	{
+		return costs;
+	}
+
+	/**
+	* @brief Calculates a lower bound of the costs of any solution the current one can be merged into
+	*
+	* @remarks Every merge saves exactly the savings of its edge, and at most nRoutes - minRoutes
+	* merges are left, so the final costs can not be lower than the current ones minus that number
+	* of times the highest savings among the edges not selected yet
+	*
+	* @param maxSavings - double highest savings among the edges not selected yet
+	*
+	* @return double - lower bound of the final costs
+	*/
+	public double calcLowerBound(double maxSavings)
+	{
+		if (maxSavings <= 0 || nRoutes <= minRoutes)
+		{
+			return costs;
+		}
+		return costs - maxSavings * (nRoutes - minRoutes);
+	}
+
+	/**
+	* @brief Gets the number of routes of the current solution
+	*
+	* @return int - number of routes
+	*/
+	public int getNRoutes()
+	{
+		return nRoutes;
+	}
+
+	/**
+	* @brief Encodes the current solution as a giant tour
+	*
+	* @return CompactSolution - costs, customers route after route and position of the first customer of each route
+	*/
+	public CompactSolution encode()
+	{
+		int[] tour = new int[nodes.length - 1];
+		int[] routeStarts = new int[nRoutes + 1];
+		int nEncoded = 0;
+		int length = 0;
+		for (int r = 1; r < nodes.length; r++)
+		{
+			if (parent[r] != r) // r is not the slot of a route
+			{
+				continue;
+			}
+			routeStarts[nEncoded++] = length;
+			int before = 0;
+			for (int k = head[r]; k != 0; )
+			{
+				tour[length++] = k;
+				int after = step(before, k);
+				before = k;
+				k = after;
+			}
+		}
+		routeStarts[nEncoded] = length;
+		return new CompactSolution(this, (float) costs, tour, routeStarts);
+	}
+
+	/**
+	* @brief Builds the Solution object of the current solution
+	*
+	* @return Solution - new solution
+	*
+	* @see Solution toSolution(CompactSolution encoding)
+	*/
+	public Solution toSolution()
+	{
+		return toSolution(encode());
+	}
+
+	/**
+	* @brief Builds the Solution, Route and Edge objects of an encoded solution
+	*
+	* @remarks Nodes are updated as in RandCWS.solve() (route, route id and interior flag)
+	*
+	* @param encoding - CompactSolution solution of this instance
+	*
+	* @return Solution - new solution
+	*/
+	Solution toSolution(CompactSolution encoding)
+	{
+		Solution aSolution = new Solution();
+		Node depot = nodes[0];
+		int[] tour = encoding.getTour();
+		for (int r = 0; r < encoding.getNRoutes(); r++)
+		{
+			int first = encoding.getRouteStart(r);
+			int last = encoding.getRouteStart(r + 1) - 1;
+			Route aRoute = new Route();
+			int k = tour[first];
+			Edge edge = new Edge(depot, nodes[k], depotCosts[k], 0);
+			for (int p = first; ; p++)
+			{
+				aRoute.addEdge(edge);
+				aRoute.addDemand(edge);
+				aRoute.addCosts(edge);
+				Node kNode = nodes[k];
+				kNode.setInRoute(aRoute.getId());
+				kNode.setRoute(aRoute);
+				kNode.setIsInterior(p != first && p != last);
+				if (p == last)
+				{
+					break;
+				}
+				int after = tour[p + 1];
+				edge = new Edge(kNode, nodes[after], calcCosts(k, after), 0);
+				k = after;
+			}
+			edge = new Edge(nodes[k], depot, returnCosts[k], 0);
+			aRoute.addEdge(edge);
+			aRoute.addCosts(edge);
+
+			aSolution.addRoute(aRoute);
+			aSolution.addCosts(aRoute);
+		}
+		fleet.assignVehicles(aSolution); // the encoding has no vehicles
+		return aSolution;
+	}
+}
@@ -61,6 +61,11 @@ public class Edge implements Comparable<Edge>
 	 */
     private double savings; 
     
+    /**
+	 * @brief value used to sort the savings list (savings by default, generalized savings otherwise)
+	 */
+    private double priority; 
+    
     /**
 	 * @brief route containing this edge (0 if no route assigned)
 	 */
@@ -87,9 +92,54 @@ public class Edge implements Comparable<Edge>
         end = endNode;
         costs = calcCostsEdge(origin, end);
         savings = calcSavingsEdge(origin, end);
+        priority = savings;
+        isForward = true;
+    }
+    
+    /**
+	* @brief Edge Constructor for a depot placed anywhere
+	*
+	* @param originNode - Node starting edge node
+	* 
+	* @param endNode - Node Ending edge node 
+	* 
+	* @param depot - Node depot used to calculate the savings
+	*/
+    public Edge(Node originNode, Node endNode, Node depot) 
+    {
+        nInstances++;
+        id = nInstances;
+        origin = originNode;
+        end = endNode;
+        costs = calcCostsEdge(origin, end);
+        savings = calcSavingsEdge(depot, origin, end);
+        priority = savings;
         isForward = true;
     }
     
+    /**
+	* @brief Edge Constructor with precomputed costs and savings
+	*
+	* @param originNode - Node starting edge node
+	*
+	* @param endNode - Node Ending edge node
+	*
+	* @param edgeCosts - double edge costs
+	*
+	* @param edgeSavings - double edge savings
+	*/
+    public Edge(Node originNode, Node endNode, double edgeCosts, double edgeSavings)
+    {
+        nInstances++;
+        id = nInstances;
+        origin = originNode;
+        end = endNode;
+        costs = edgeCosts;
+        savings = edgeSavings;
+        priority = edgeSavings;
+        isForward = true;
+    }
+
     /**
 	* @brief Edge Copy Constructor
 	*
@@ -103,6 +153,7 @@ public class Edge implements Comparable<Edge>
         end = referenceEdge.end;
         costs = referenceEdge.costs;
         savings = referenceEdge.savings;
+        priority = referenceEdge.priority;
         isForward = referenceEdge.isForward;
     }
 
@@ -119,11 +170,24 @@ public class Edge implements Comparable<Edge>
     /**
    	* @brief Update savings value
    	*
+   	* @remarks The sorting priority is updated too
+   	*
    	* @param edgeSavings - double new edge savings value
    	*/
     public void setSavings(double edgeSavings) 
     {
         savings = edgeSavings;
+        priority = edgeSavings;
+    }
+
+    /**
+   	* @brief Update the value used to sort the savings list, without changing the savings value
+   	*
+   	* @param edgePriority - double new sorting priority (e.g. a generalized savings value)
+   	*/
+    public void setPriority(double edgePriority) 
+    {
+        priority = edgePriority;
     }
 
     /**
@@ -199,6 +263,16 @@ public class Edge implements Comparable<Edge>
         return savings;
     }
 
+    /**
+   	* @brief Get the value used to sort the savings list
+   	*
+   	* @return double - sorting priority, equal to the savings unless a generalized savings is used
+   	*/
+    public double getPriority() 
+    {
+        return priority;
+    }
+
     /**
    	* @brief Get Route id associated to the edge
    	* 
@@ -244,21 +318,24 @@ public class Edge implements Comparable<Edge>
     }
 
     /**
-     * @brief Compare the node id against a given node
+     * @brief Compare the edge priority (savings by default) against a given edge
+     * 
+     * @remarks Ties return 0 so that the sort is stable and consistent (TIE ISSUE #1), which keeps
+     * the sorted savings list reproducible between runs and JVMs
      * 
-     * @return 1 if the node is the lowest -1 if the given node is the lowest 0 if both nodes have the same id
+     * @return -1 if this edge has lower priority, 1 if it has greater priority, 0 if both are equal
      */
     public int compareTo(Edge otherEdge) 
     {
-        if (this.savings < otherEdge.getSavings()) 
+        if (this.priority < otherEdge.getPriority()) 
         {
             return -1;
         } 
-        else if (this.savings > otherEdge.getSavings()) 
+        else if (this.priority > otherEdge.getPriority()) 
         {
             return 1;
         }
-        return -1;
+        return 0;
     }
 
    
@@ -280,6 +357,8 @@ public class Edge implements Comparable<Edge>
     /**
      * @brief Calculates the edges savings value according to Clarke and Wright definition
      * 
+     * @remarks The depot is assumed to be at (0,0), use calcSavingsEdge(Node, Node, Node) otherwise
+     * 
      * @return double - savings value
      */
     public double calcSavingsEdge(Node no, Node ne) 
@@ -299,4 +378,24 @@ public class Edge implements Comparable<Edge>
         return cod + cde - costs;
 
     }
+
+    /**
+     * @brief Calculates the edges savings value according to Clarke and Wright definition for a depot placed anywhere
+     * 
+     * @param depot - Node depot
+     * 
+     * @param no - Node origin node
+     * 
+     * @param ne - Node end node
+     * 
+     * @return double - savings value
+     */
+    public double calcSavingsEdge(Node depot, Node no, Node ne) 
+    {
+        //Cost originNode to depot plus cost depot to endNode
+        double cod = calcCostsEdge(no, depot);
+        double cde = calcCostsEdge(depot, ne);
+
+        return cod + cde - costs;
+    }
 }
@@ -0,0 +1,455 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+* @class ExternalSavingsSort srgcwscs.ExternalSavingsSort
+*
+* @brief This class sorts the savings list of an instance on disk, for instances whose list does
+* not fit in memory, and reads it back sequentially.
+*
+* @remarks The savings are generated row by row from the Inputs in chunks of runSize edges. Each
+* chunk is sorted in memory and spilled to a temporary run file, and then all runs are merged into
+* a single file sorted from the highest savings down (ties by descending origin and end, the order
+* in which the CWS scan reads the in-heap list). Memory use is bounded by the run size and the
+* buffers of the runs being merged. The sorted file can be read any number of times.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class ExternalSavingsSort
+{
+	/**
+     * @brief Size of a record in bytes: origin, end, savings
+     */
+	private static final int RECORD_SIZE = 16;
+
+	/**
+     * @brief Number of records read or written at once for each file
+     */
+	private static final int RECORDS_PER_BUFFER = 4096;
+
+	/**
+     * @brief Directory for the run files and the sorted file
+     */
+	private File directory;
+
+	/**
+     * @brief Maximum number of edges sorted in memory at once
+     */
+	private int runSize;
+
+	/**
+     * @brief Sorted savings file (null until sort() is called)
+     */
+	private File sortedFile;
+
+	/**
+     * @brief Number of edges in the sorted file
+     */
+	private long nRecords;
+
+	/**
+	* @brief ExternalSavingsSort Constructor
+	*
+	* @param tmpDirectory - File directory for the temporary files, created if it does not exist
+	*
+	* @param maxRunSize - int maximum number of edges sorted in memory at once
+	*/
+	public ExternalSavingsSort(File tmpDirectory, int maxRunSize)
+	{
+		directory = tmpDirectory;
+		runSize = maxRunSize;
+	}
+
+	/**
+	* @brief Generates and sorts the savings list of an instance
+	*
+	* @remarks Pairs missing in a sparse cost matrix are left out
+	*
+	* @param inputs - Inputs instance, the depot in position 0 (asymmetric cost matrices are not supported)
+	*
+	* @throws IOException if the temporary files can not be written
+	*/
+	public void sort(Inputs inputs) throws IOException
+	{
+		if (inputs.getCostMatrix() != null && inputs.getCostMatrix().isAsymmetric())
+		{
+			throw new IOException("Asymmetric cost matrices are not supported");
+		}
+		if (!directory.exists() && !directory.mkdirs())
+		{
+			throw new IOException("Unable to create directory " + directory);
+		}
+		delete();
+
+		// 1. Generate the savings in chunks, spilling every sorted chunk to a run file
+		ArrayList<File> runs = new ArrayList<File>();
+		Node[] nodes = inputs.getNodeList();
+		int size = nodes.length;
+		double[] x = GeometryKernel.getX(nodes);
+		double[] y = GeometryKernel.getY(nodes);
+		double[] depotCosts = inputs.calcDepotCosts(x, y);
+		double[] costsRow = new double[size];
+		double[] savingsRow = new double[size];
+		SavingsStore chunk = new SavingsStore(Math.min(runSize, Math.max(1, inputs.getNEdges())), false);
+		nRecords = 0;
+		try
+		{
+			for (int i = 1; i < size - 1; i++) // node 0 is the depot
+			{
+				inputs.calcCostsRow(x, y, i, i + 1, size, costsRow);
+				GeometryKernel.savingsRow(depotCosts, i, i + 1, size, costsRow, i + 1, savingsRow);
+				for (int j = i + 1; j < size; j++)
+				{
+					if (Double.isInfinite(costsRow[j - i - 1]))
+					{
+						continue;
+					}
+					if (chunk.size() == runSize)
+					{
+						runs.add(writeRun(chunk));
+						chunk.clear();
+					}
+					chunk.add(i, j, savingsRow[j - i - 1]);
+					nRecords++;
+				}
+			}
+			runs.add(writeRun(chunk));
+			chunk.close(); // not needed by the merge
+
+			// 2. Merge the runs into the sorted file
+			if (runs.size() == 1)
+			{
+				sortedFile = runs.remove(0);
+			}
+			else
+			{
+				File output = File.createTempFile("savings", ".sorted", directory);
+				merge(runs, output);
+				sortedFile = output;
+			}
+		}
+		finally
+		{
+			chunk.close();
+			for (int r = 0; r < runs.size(); r++)
+			{
+				runs.get(r).delete();
+			}
+		}
+	}
+
+	/**
+	* @brief Sorts a chunk of edges and writes it to a run file, from the highest savings down
+	*/
+	private File writeRun(SavingsStore chunk) throws IOException
+	{
+		chunk.sort();
+		File run = File.createTempFile("savings", ".run", directory);
+		RecordWriter writer = new RecordWriter(run);
+		try
+		{
+			for (long k = chunk.size() - 1; k >= 0; k--)
+			{
+				writer.write(chunk.getOrigin(k), chunk.getEnd(k), chunk.getSavings(k));
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+		return run;
+	}
+
+	/**
+	* @brief Merges sorted run files into a single sorted file
+	*
+	* @remarks The first record of every run is kept in a binary heap, the run with the highest
+	* savings is always at the top
+	*/
+	private void merge(ArrayList<File> runs, File output) throws IOException
+	{
+		int nRuns = runs.size();
+		RecordReader[] heap = new RecordReader[nRuns];
+		int heapSize = 0;
+		RecordWriter writer = new RecordWriter(output);
+		try
+		{
+			for (int r = 0; r < nRuns; r++)
+			{
+				RecordReader reader = new RecordReader(runs.get(r));
+				if (reader.next())
+				{
+					heap[heapSize++] = reader;
+				}
+				else
+				{
+					reader.close();
+				}
+			}
+			for (int k = heapSize / 2 - 1; k >= 0; k--)
+			{
+				siftDown(heap, heapSize, k);
+			}
+
+			while (heapSize > 0)
+			{
+				RecordReader top = heap[0];
+				writer.write(top.getOrigin(), top.getEnd(), top.getSavings());
+				if (!top.next())
+				{
+					top.close();
+					heap[0] = heap[--heapSize];
+				}
+				siftDown(heap, heapSize, 0);
+			}
+		}
+		finally
+		{
+			writer.close();
+			for (int k = 0; k < heapSize; k++)
+			{
+				heap[k].close();
+			}
+		}
+	}
+
+	/**
+	* @brief Restores the heap property from a given position down
+	*/
+	private static void siftDown(RecordReader[] heap, int heapSize, int k)
+	{
+		while (true)
+		{
+			int first = k;
+			int left = 2 * k + 1;
+			int right = left + 1;
+			if (left < heapSize && precedes(heap[left], heap[first]))
+			{
+				first = left;
+			}
+			if (right < heapSize && precedes(heap[right], heap[first]))
+			{
+				first = right;
+			}
+			if (first == k)
+			{
+				return;
+			}
+			RecordReader aux = heap[k];
+			heap[k] = heap[first];
+			heap[first] = aux;
+			k = first;
+		}
+	}
+
+	/**
+	* @brief Checks whether the current record of a run goes before the one of another run
+	*
+	* @return boolean - true if a has higher savings, or equal savings and higher origin and end
+	*/
+	private static boolean precedes(RecordReader a, RecordReader b)
+	{
+		if (a.getSavings() != b.getSavings())
+		{
+			return a.getSavings() > b.getSavings();
+		}
+		long ka = ((long) a.getOrigin() << 32) | a.getEnd();
+		long kb = ((long) b.getOrigin() << 32) | b.getEnd();
+		return ka > kb;
+	}
+
+	/**
+	* @brief Opens a sequential reader over the sorted savings list
+	*
+	* @return SavingsReader - reader from the highest savings down, to be closed after use
+	*
+	* @throws IOException if the sorted file can not be opened
+	*/
+	public SavingsReader open() throws IOException
+	{
+		if (sortedFile == null)
+		{
+			throw new IOException("The savings list has not been sorted");
+		}
+		return new RecordReader(sortedFile);
+	}
+
+	/**
+	* @brief Gets the number of edges in the sorted list
+	*
+	* @return long - number of edges
+	*/
+	public long size()
+	{
+		return nRecords;
+	}
+
+	/**
+	* @brief Deletes the sorted file
+	*/
+	public void delete()
+	{
+		if (sortedFile != null)
+		{
+			sortedFile.delete();
+			sortedFile = null;
+		}
+	}
+
+	/**
+	* @class RecordReader
+	*
+	* @brief Buffered sequential reader of a file of savings records
+	*/
+	private static class RecordReader implements SavingsReader
+	{
+		private FileInputStream in;
+		private FileChannel channel;
+		private ByteBuffer buffer;
+		private int origin;
+		private int end;
+		private double savings;
+
+		RecordReader(File file) throws IOException
+		{
+			in = new FileInputStream(file);
+			channel = in.getChannel();
+			buffer = ByteBuffer.allocateDirect(RECORDS_PER_BUFFER * RECORD_SIZE);
+			buffer.flip(); // empty
+		}
+
+		public boolean next()
+		{
+			if (!buffer.hasRemaining())
+			{
+				try
+				{
+					buffer.clear();
+					while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+					{
+					}
+					buffer.flip();
+				}
+				catch (IOException exception)
+				{
+					System.out.println("Error reading sorted savings: " + exception);
+					buffer.limit(0);
+				}
+				if (buffer.remaining() < RECORD_SIZE)
+				{
+					return false;
+				}
+			}
+			origin = buffer.getInt();
+			end = buffer.getInt();
+			savings = buffer.getDouble();
+			return true;
+		}
+
+		public int getOrigin()
+		{
+			return origin;
+		}
+
+		public int getEnd()
+		{
+			return end;
+		}
+
+		public double getSavings()
+		{
+			return savings;
+		}
+
+		public void close()
+		{
+			try
+			{
+				in.close();
+			}
+			catch (IOException exception)
+			{
+				System.out.println("Error closing sorted savings: " + exception);
+			}
+		}
+	}
+
+	/**
+	* @class RecordWriter
+	*
+	* @brief Buffered sequential writer of a file of savings records
+	*/
+	private static class RecordWriter
+	{
+		private FileOutputStream out;
+		private FileChannel channel;
+		private ByteBuffer buffer;
+
+		RecordWriter(File file) throws IOException
+		{
+			out = new FileOutputStream(file);
+			channel = out.getChannel();
+			buffer = ByteBuffer.allocateDirect(RECORDS_PER_BUFFER * RECORD_SIZE);
+		}
+
+		void write(int origin, int end, double savings) throws IOException
+		{
+			if (!buffer.hasRemaining())
+			{
+				flush();
+			}
+			buffer.putInt(origin);
+			buffer.putInt(end);
+			buffer.putDouble(savings);
+		}
+
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		void close() throws IOException
+		{
+			try
+			{
+				flush();
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+	}
+}
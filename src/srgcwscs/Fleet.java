@@ -0,0 +1,405 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+* @class Fleet srgcwscs.Fleet
+*
+* @brief This class represents a (heterogeneous) fleet as capacity classes, the distinct vehicle
+* capacities in ascending order, and the vehicles of each class still available while a solution is built.
+*
+* @remarks Every vehicle of the vehicle list is one vehicle of the fleet. A route of several customers
+* holds the vehicle of the smallest class available that can carry its demand. A route of a single customer
+* (the CWS dummy solution) holds a vehicle of the smallest class that can carry it, even if the class has
+* none left: the availability of a class goes negative while the routes need more vehicles than the fleet
+* has, and a merge that releases one of those vehicles is always possible. A fleet of a single class is not
+* limited, the vehicle files of the Kelly instances only give the capacity. The class of a demand is looked
+* up in a table of buckets, and the classes with vehicles available are kept in a bitset, so selecting a
+* vehicle for a merge is O(1) whatever the number of classes.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class Fleet
+{
+	/**
+     * @brief Largest number of buckets of the demand lookup table
+     */
+	private static final int MAX_BUCKETS = 4096;
+
+	/**
+     * @brief Capacity of each class, in ascending order
+     */
+	private int[] capacities;
+
+	/**
+     * @brief Vehicles of each class in the fleet
+     */
+	private int[] counts;
+
+	/**
+     * @brief Representative vehicle of each class
+     */
+	private Vehicle[] vehicles;
+
+	/**
+     * @brief true if the vehicles of each class are limited (more than one class)
+     */
+	private boolean limited;
+
+	/**
+     * @brief log2 of the demand range of each bucket
+     */
+	private int shift;
+
+	/**
+     * @brief Smallest class whose capacity is not lower than the first demand of each bucket
+     */
+	private int[] buckets;
+
+	/**
+     * @brief Vehicles of each class still available, negative if the routes hold more than the class has
+     */
+	private int[] available;
+
+	/**
+     * @brief One bit per class with vehicles still available
+     */
+	private long[] availableMask;
+
+	/**
+	* @brief Fleet Constructor, groups the vehicles of the list by capacity
+	*
+	* @param vehiclesList - ArrayList<Vehicle> one entry per vehicle of the fleet
+	*/
+	public Fleet(ArrayList<Vehicle> vehiclesList)
+	{
+		int[] sorted = new int[vehiclesList.size()];
+		for (int v = 0; v < sorted.length; v++)
+		{
+			sorted[v] = vehiclesList.get(v).getVcap();
+		}
+		Arrays.sort(sorted);
+		int nClasses = 0;
+		for (int v = 0; v < sorted.length; v++)
+		{
+			if (v == 0 || sorted[v] != sorted[v - 1])
+			{
+				nClasses++;
+			}
+		}
+		capacities = new int[nClasses];
+		counts = new int[nClasses];
+		vehicles = new Vehicle[nClasses];
+		int c = -1;
+		for (int v = 0; v < sorted.length; v++)
+		{
+			if (v == 0 || sorted[v] != sorted[v - 1])
+			{
+				capacities[++c] = sorted[v];
+				vehicles[c] = new Vehicle(sorted[v]);
+			}
+			counts[c]++;
+		}
+		limited = nClasses > 1;
+
+		// Bucket b covers the demands from b << shift to ((b + 1) << shift) - 1
+		int maxCapacity = getMaxCapacity();
+		shift = 0;
+		while ((maxCapacity >> shift) >= MAX_BUCKETS)
+		{
+			shift++;
+		}
+		buckets = new int[(maxCapacity >> shift) + 1];
+		c = 0;
+		for (int b = 0; b < buckets.length; b++)
+		{
+			while (capacities[c] < (b << shift))
+			{
+				c++;
+			}
+			buckets[b] = c;
+		}
+		available = new int[nClasses];
+		availableMask = new long[(nClasses + 63) >>> 6];
+		reset();
+	}
+
+	/**
+	* @brief Fleet Constructor, shares the classes of another fleet with an availability of its own
+	*
+	* @param fleet - Fleet classes of the instance
+	*/
+	public Fleet(Fleet fleet)
+	{
+		capacities = fleet.capacities;
+		counts = fleet.counts;
+		vehicles = fleet.vehicles;
+		limited = fleet.limited;
+		shift = fleet.shift;
+		buckets = fleet.buckets;
+		available = new int[capacities.length];
+		availableMask = new long[fleet.availableMask.length];
+		reset();
+	}
+
+	/**
+	* @brief Fleet Constructor, a part of another fleet: the same classes with fewer vehicles of each one
+	*
+	* @remarks The part is limited if the fleet is, whatever the classes left in it (e.g. the share of a depot)
+	*
+	* @param fleet - Fleet classes of the instance
+	*
+	* @param classCounts - int[] vehicles of each class in the part
+	*/
+	public Fleet(Fleet fleet, int[] classCounts)
+	{
+		this(fleet);
+		counts = classCounts.clone();
+		reset();
+	}
+
+	/**
+	* @brief Makes all the vehicles of the fleet available again
+	*/
+	public void reset()
+	{
+		System.arraycopy(counts, 0, available, 0, counts.length);
+		Arrays.fill(availableMask, 0);
+		for (int c = 0; c < counts.length; c++)
+		{
+			if (counts[c] > 0)
+			{
+				availableMask[c >>> 6] |= 1L << c;
+			}
+		}
+	}
+
+	/**
+	* @brief Copies the availability of another fleet with the same classes
+	*
+	* @param fleet - Fleet source
+	*/
+	public void copyFrom(Fleet fleet)
+	{
+		System.arraycopy(fleet.available, 0, available, 0, available.length);
+		System.arraycopy(fleet.availableMask, 0, availableMask, 0, availableMask.length);
+	}
+
+	/**
+	* @brief Gets the capacity of the largest vehicles of the fleet
+	*
+	* @return int - largest capacity
+	*/
+	public int getMaxCapacity()
+	{
+		return capacities[capacities.length - 1];
+	}
+
+	/**
+	* @brief Gets the number of capacity classes
+	*
+	* @return int - number of distinct capacities
+	*/
+	public int getNClasses()
+	{
+		return capacities.length;
+	}
+
+	/**
+	* @brief Gets the number of vehicles of a class in the fleet
+	*
+	* @param c - int class
+	*
+	* @return int - vehicles of the class
+	*/
+	public int getCount(int c)
+	{
+		return counts[c];
+	}
+
+	/**
+	* @brief Checks whether the vehicles of each class are limited
+	*
+	* @return boolean - true if the fleet has several classes
+	*/
+	public boolean isLimited()
+	{
+		return limited;
+	}
+
+	/**
+	* @brief Gets the representative vehicle of a class
+	*
+	* @param c - int class
+	*
+	* @return Vehicle - vehicle with the capacity of the class
+	*/
+	public Vehicle getVehicle(int c)
+	{
+		return vehicles[c];
+	}
+
+	/**
+	* @brief Gets the smallest class that can carry a demand
+	*
+	* @param demand - int demand of a route
+	*
+	* @return int - class, -1 if the demand exceeds the largest capacity
+	*/
+	public int classOf(int demand)
+	{
+		if (demand > capacities[capacities.length - 1])
+		{
+			return -1;
+		}
+		int c = buckets[demand >> shift];
+		while (capacities[c] < demand) // several classes in the bucket
+		{
+			c++;
+		}
+		return c;
+	}
+
+	/**
+	* @brief Selects the vehicle of the route resulting from merging two routes
+	*
+	* @remarks The vehicles of the two routes are released by the merge, so they can be selected too
+	*
+	* @param demand - int demand of the merged route
+	*
+	* @param heldI - int class of the vehicle of the first route (-1 for none)
+	*
+	* @param heldJ - int class of the vehicle of the second route (-1 for none)
+	*
+	* @return int - smallest class available that can carry the demand, -1 if there is none
+	*/
+	public int select(int demand, int heldI, int heldJ)
+	{
+		int c = classOf(demand);
+		if (c < 0 || !limited)
+		{
+			return c;
+		}
+		int best = nextAvailable(c);
+		if (heldI >= c && (best < 0 || heldI < best))
+		{
+			best = heldI;
+		}
+		if (heldJ >= c && (best < 0 || heldJ < best))
+		{
+			best = heldJ;
+		}
+		return best;
+	}
+
+	/**
+	* @brief Takes a vehicle of a class
+	*
+	* @remarks The class may have no vehicle left, e.g. for a route of a single customer
+	*
+	* @param c - int class selected by select() or classOf()
+	*/
+	public void take(int c)
+	{
+		if (limited && --available[c] <= 0)
+		{
+			availableMask[c >>> 6] &= ~(1L << c);
+		}
+	}
+
+	/**
+	* @brief Gives back the vehicle of a route
+	*
+	* @param c - int class (-1 for none)
+	*/
+	public void release(int c)
+	{
+		if (limited && c >= 0 && ++available[c] > 0)
+		{
+			availableMask[c >>> 6] |= 1L << c;
+		}
+	}
+
+	/**
+	* @brief Assigns a vehicle of the fleet to each route of a solution
+	*
+	* @remarks The smallest vehicle available that can carry the demand is taken, first by the routes of
+	* several customers, then by the other ones, which finds an assignment whenever there is one. Routes
+	* left without a vehicle available keep none, so the solution never holds vehicles the fleet does not have.
+	*
+	* @param aSolution - Solution whose routes get the vehicles
+	*
+	* @return int - number of routes left without a vehicle, also set in the solution
+	*/
+	public int assignVehicles(Solution aSolution)
+	{
+		Fleet assignment = new Fleet(this);
+		int nMissing = 0;
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (Route aRoute : aSolution.getRoutes())
+			{
+				if ((aRoute.getEdges().size() > 2) != (pass == 0)) // routes of a single customer have 2 edges
+				{
+					continue;
+				}
+				int vehicle = assignment.select(aRoute.getDemand(), -1, -1);
+				if (vehicle >= 0)
+				{
+					assignment.take(vehicle);
+					aRoute.setVehicle(assignment.getVehicle(vehicle));
+				}
+				else
+				{
+					aRoute.setVehicle(null);
+					nMissing++;
+				}
+			}
+		}
+		aSolution.setMissingVehicles(nMissing);
+		return nMissing;
+	}
+
+	/**
+	* @brief Finds the smallest class with vehicles available from a given one
+	*
+	* @param c - int first class
+	*
+	* @return int - class, -1 if there is none
+	*/
+	private int nextAvailable(int c)
+	{
+		int w = c >>> 6;
+		long bits = availableMask[w] & (-1L << c); // the shift only uses the low 6 bits of c
+		while (bits == 0)
+		{
+			if (++w == availableMask.length)
+			{
+				return -1;
+			}
+			bits = availableMask[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(bits);
+	}
+}
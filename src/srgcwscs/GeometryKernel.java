@@ -0,0 +1,172 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+/**
+* @class GeometryKernel srgcwscs.GeometryKernel
+*
+* @brief This class computes whole rows of distances and savings from coordinate arrays.
+*
+* @remarks The loops work on primitive arrays only, with no calls nor branches inside, so the JIT
+* compiler can vectorize them with the SIMD instructions of the CPU (including the square root).
+* On CPUs or JVMs without SIMD support the very same loops simply run as scalar code. The
+* arithmetic follows Edge.calcCostsEdge() and Edge.calcSavingsEdge() operation by operation, so
+* the results are identical to the ones of the Edge class.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class GeometryKernel
+{
+	/**
+	* @brief GeometryKernel Constructor
+	*/
+	private GeometryKernel()
+	{
+	}
+
+	/**
+	* @brief Gets the x coordinates of a set of nodes
+	*
+	* @param nodes - Node[] array of nodes
+	*
+	* @return double[] - x coordinates in the same order as the nodes
+	*/
+	public static double[] getX(Node[] nodes)
+	{
+		double[] x = new double[nodes.length];
+		for (int i = 0; i < nodes.length; i++)
+		{
+			x[i] = nodes[i].getX();
+		}
+		return x;
+	}
+
+	/**
+	* @brief Gets the y coordinates of a set of nodes
+	*
+	* @param nodes - Node[] array of nodes
+	*
+	* @return double[] - y coordinates in the same order as the nodes
+	*/
+	public static double[] getY(Node[] nodes)
+	{
+		double[] y = new double[nodes.length];
+		for (int i = 0; i < nodes.length; i++)
+		{
+			y[i] = nodes[i].getY();
+		}
+		return y;
+	}
+
+	/**
+	* @brief Computes the distances from a point to the nodes from..to-1
+	*
+	* @param x - double[] x coordinates of the nodes
+	*
+	* @param y - double[] y coordinates of the nodes
+	*
+	* @param px - double x coordinate of the point
+	*
+	* @param py - double y coordinate of the point
+	*
+	* @param from - int first node (included)
+	*
+	* @param to - int last node (excluded)
+	*
+	* @param out - double[] distances, out[j - from] is the distance to node j
+	*/
+	public static void distanceRow(double[] x, double[] y, double px, double py, int from, int to, double[] out)
+	{
+		for (int j = from; j < to; j++)
+		{
+			double dx = x[j] - px;
+			double dy = y[j] - py;
+			out[j - from] = Math.sqrt(dx * dx + dy * dy);
+		}
+	}
+
+	/**
+	* @brief Computes the savings of the edges (i, j) for j = from..to-1
+	*
+	* @param depotDistances - double[] distance from the depot to every node
+	*
+	* @param i - int origin node of the edges
+	*
+	* @param from - int first end node (included)
+	*
+	* @param to - int last end node (excluded)
+	*
+	* @param distances - double[] distances from node i, distances[j - distancesFrom] is the distance to node j
+	*
+	* @param distancesFrom - int node of the first position of the distances array
+	*
+	* @param out - double[] savings, out[j - from] is the savings of the edge (i, j)
+	*/
+	public static void savingsRow(double[] depotDistances, int i, int from, int to, double[] distances, int distancesFrom, double[] out)
+	{
+		double di = depotDistances[i];
+		int shift = from - distancesFrom;
+		for (int j = from; j < to; j++)
+		{
+			out[j - from] = di + depotDistances[j] - distances[j - from + shift];
+		}
+	}
+
+	/**
+	* @brief Computes the generalized savings of the edges (i, j) for j = from..to-1
+	*
+	* @remarks s(i,j) = d(0,i) + d(0,j) - lambda * d(i,j) + mu * |d(0,i) - d(0,j)| + nu * (q(i) + q(j))
+	*
+	* @param depotDistances - double[] distance from the depot to every node
+	*
+	* @param demands - double[] demand of every node, already divided by the mean demand
+	*
+	* @param i - int origin node of the edges
+	*
+	* @param from - int first end node (included)
+	*
+	* @param to - int last end node (excluded)
+	*
+	* @param distances - double[] distances from node i, distances[j - distancesFrom] is the distance to node j
+	*
+	* @param distancesFrom - int node of the first position of the distances array
+	*
+	* @param parameters - SavingsParameters lambda, mu and nu values
+	*
+	* @param out - double[] savings, out[j - from] is the generalized savings of the edge (i, j)
+	*/
+	public static void generalizedSavingsRow(double[] depotDistances, double[] demands, int i, int from, int to,
+			double[] distances, int distancesFrom, SavingsParameters parameters, double[] out)
+	{
+		double lambda = parameters.getLambda();
+		double mu = parameters.getMu();
+		double nu = parameters.getNu();
+		double di = depotDistances[i];
+		double qi = demands[i];
+		int shift = from - distancesFrom;
+		for (int j = from; j < to; j++)
+		{
+			double dj = depotDistances[j];
+			out[j - from] = di + dj - lambda * distances[j - from + shift] + mu * Math.abs(di - dj)
+					+ nu * (qi + demands[j]);
+		}
+	}
+}
@@ -16,7 +16,10 @@
 
 package srgcwscs;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 
 /**
@@ -35,21 +38,51 @@ import java.util.ArrayList;
 public class Inputs 
 {
 
+	/**
+     * @brief Largest savings list that can be kept in a Java array, larger ones need a SavingsStore
+     */
+	public static final long MAX_HEAP_EDGES = Integer.MAX_VALUE - 8;
+
 	/**
      * @brief NodeList Array of nodes
      */
-    static private Node[] NodeList;
+    private Node[] NodeList;
     
     /**
      * @brief EdgeList ArrayList of edges
      */
-    static private Edge[] EdgeList;
+    private Edge[] EdgeList;
    
     /**
      * @brief EdgeList ArrayList of vehicles
      */
     private ArrayList<Vehicle> vehiclesList;
     
+    /**
+     * @brief Capacity classes of the vehicles (null until getFleet() is called)
+     */
+    private Fleet fleet;
+    
+    /**
+     * @brief Distance matrix and savings list mapped in memory (null when they are kept in the heap)
+     */
+    private MappedMatrices mappedMatrices;
+    
+    /**
+     * @brief Sorted savings list stored outside the heap (null when it is kept in the heap)
+     */
+    private SavingsStore savingsStore;
+    
+    /**
+     * @brief Savings list sorted on disk (null when it is kept in memory)
+     */
+    private ExternalSavingsSort externalSavings;
+    
+    /**
+     * @brief External travel costs between nodes, indexed by node id (null for euclidean costs)
+     */
+    private CostMatrix costMatrix;
+    
     /**
    	* @brief Inputs Constructor
    	*
@@ -58,7 +91,7 @@ public class Inputs
     public Inputs(int n) 
     {
         NodeList = new Node[n];
-        EdgeList = new Edge[(n - 1) * (n - 2) / 2]; // The depot is not considered
+        EdgeList = null; // allocated by fillEdgeList(), not needed when the matrices are mapped
         vehiclesList=new ArrayList<Vehicle>();
     }
 
@@ -82,9 +115,14 @@ public class Inputs
         this.NodeList = NodeList;
     }
 
-    public static void setEdgeList(Edge[] EdgeList) 
+    /**
+   	* @brief Sets the array of edges
+   	*    	
+   	* @param EdgeList - Edge[] array of edges
+   	*/
+    public void setEdgeList(Edge[] EdgeList) 
     {
-        Inputs.EdgeList = EdgeList;
+        this.EdgeList = EdgeList;
     }
 
     /**
@@ -139,6 +177,36 @@ public class Inputs
     public void setVehicle(Vehicle v)
     {
         vehiclesList.add(v);
+        fleet = null; // classes built for the previous list
+    }
+
+    /**
+   	* @brief Gets the capacity classes of the available vehicles
+   	*
+   	* @remarks Solvers take a copy, Fleet(Fleet), to keep the vehicles available in their own solutions
+   	* 
+   	* @return Fleet - classes of the vehicle list, built on first use
+   	*/
+    public Fleet getFleet()
+    {
+        if (fleet == null)
+        {
+        	fleet = new Fleet(vehiclesList);
+        }
+        return fleet;
+    }
+
+    /**
+   	* @brief Sets the capacity classes of the vehicles instead of building them from the vehicle list
+   	*
+   	* @remarks For sub-problems served by a part of a fleet (see Fleet(Fleet, int[])). Call it after the
+   	* vehicles have been added, setVehicle() drops it.
+   	* 
+   	* @param vehicleFleet - Fleet classes and vehicles of the instance
+   	*/
+    public void setFleet(Fleet vehicleFleet)
+    {
+        fleet = vehicleFleet;
     }
 
     /**
@@ -153,23 +221,606 @@ public class Inputs
         return vehiclesList.get(index);
     }
 
+    /**
+   	* @brief Gets the number of edges in the savings list
+   	*
+   	* @remarks With an asymmetric cost matrix both directions of every pair of customers are edges.
+   	* The count is computed in long, it exceeds the int range beyond about 46,000 nodes.
+   	*
+   	* @return long - number of edges
+   	*/
+    public long getNEdges()
+    {
+    	long nEdges = (long) (NodeList.length - 1) * (NodeList.length - 2) / 2; // The depot is not considered
+    	if (costMatrix != null && costMatrix.isAsymmetric())
+    	{
+    		nEdges = 2 * nEdges;
+    	}
+    	return nEdges;
+    }
+    
+    /**
+   	* @brief Sets an external matrix of travel costs, used instead of the euclidean distances
+   	*
+   	* @param matrix - CostMatrix travel costs indexed by node id
+   	*/
+    public void setCostMatrix(CostMatrix matrix)
+    {
+    	costMatrix = matrix;
+    }
+    
+    /**
+   	* @brief Gets the external matrix of travel costs
+   	*
+   	* @return CostMatrix - travel costs indexed by node id, null for euclidean costs
+   	*/
+    public CostMatrix getCostMatrix()
+    {
+    	return costMatrix;
+    }
+    
+    /**
+   	* @brief Calculates the cost from the depot to every node
+   	*
+   	* @param x - double[] x coordinates of the nodes
+   	* 
+   	* @param y - double[] y coordinates of the nodes
+   	* 
+   	* @return double[] - depot costs, from the cost matrix or euclidean from the depot location
+   	*/
+    double[] calcDepotCosts(double[] x, double[] y)
+    {
+    	double[] depotCosts = new double[NodeList.length];
+    	if (costMatrix == null)
+    	{
+    		GeometryKernel.distanceRow(x, y, x[0], y[0], 0, NodeList.length, depotCosts);
+    	}
+    	else
+    	{
+    		int depotId = NodeList[0].getId();
+    		for (int j = 0; j < NodeList.length; j++)
+    		{
+    			depotCosts[j] = costMatrix.getCost(depotId, NodeList[j].getId());
+    		}
+    	}
+    	return depotCosts;
+    }
+    
+    /**
+   	* @brief Calculates the costs from node i to the nodes from..to-1
+   	*
+   	* @param out - double[] costs, out[j - from] is the cost from node i to node j
+   	*/
+    void calcCostsRow(double[] x, double[] y, int i, int from, int to, double[] out)
+    {
+    	if (costMatrix == null)
+    	{
+    		GeometryKernel.distanceRow(x, y, x[i], y[i], from, to, out);
+    	}
+    	else
+    	{
+    		int iId = NodeList[i].getId();
+    		for (int j = from; j < to; j++)
+    		{
+    			out[j - from] = costMatrix.getCost(iId, NodeList[j].getId());
+    		}
+    	}
+    }
+
     /**
    	* @brief Creates an array list of edges connecting the problem nodes
+   	*
+   	* @remarks Costs and savings are computed row by row, with GeometryKernel from coordinate arrays or
+   	* from the cost matrix, using the real depot costs
    	*/
     public void fillEdgeList() 
     {
+    	if (getNEdges() > MAX_HEAP_EDGES)
+    	{
+    		System.out.println("Error in fillEdgeList() method: " + getNEdges()
+    				+ " edges do not fit in an array, use createSavingsStore()");
+    		return;
+    	}
+    	int nEdges = (int) getNEdges();
+    	if (EdgeList == null || EdgeList.length != nEdges)
+    	{
+    		EdgeList = new Edge[nEdges];
+    	}
+    	if (costMatrix != null && costMatrix.isAsymmetric())
+    	{
+    		fillDirectedEdgeList();
+    		return;
+    	}
+    	
+    	// 1. Coordinates and depot costs
+    	int size = NodeList.length;
+    	double[] x = GeometryKernel.getX(NodeList);
+    	double[] y = GeometryKernel.getY(NodeList);
+    	double[] depotDistances = calcDepotCosts(x, y);
+    	double[] costsRow = new double[size];
+    	double[] savingsRow = new double[size];
+    	
+    	// 2. One row of edges (i, j > i) at a time
     	int n = 0;
-        for (int i = 1; i < NodeList.length - 1; i++) // node 0 is the depot
+        for (int i = 1; i < size - 1; i++) // node 0 is the depot
         {
-            for (int j = i + 1; j < NodeList.length; j++) 
+        	calcCostsRow(x, y, i, i + 1, size, costsRow);
+        	GeometryKernel.savingsRow(depotDistances, i, i + 1, size, costsRow, i + 1, savingsRow);
+        	Node iNode = NodeList[i];
+            for (int j = i + 1; j < size; j++) 
             {
-                Node iNode = NodeList[i];
-                Node jNode = NodeList[j];
-                Edge ijEdge = new Edge(iNode, jNode);
-                EdgeList[n] = ijEdge;
+                EdgeList[n] = new Edge(iNode, NodeList[j], costsRow[j - i - 1], savingsRow[j - i - 1]);
                 n++;
             }
         }
     }
     
+    /**
+   	* @brief Creates the edges of both directions of every pair of customers for an asymmetric cost matrix
+   	*
+   	* @remarks The savings of the edge (i, j) is c(i,0) + c(0,j) - c(i,j): the route ending at i is
+   	* followed by the route starting at j. Edges with a pair missing in a sparse matrix (infinite costs)
+   	* keep their place, since the list has one edge per pair, but get Double.NEGATIVE_INFINITY savings
+   	* instead of an infinite or NaN value: they go to the bottom of the sorted list and the route costs
+   	* condition rejects them, as createSavingsStore() and ExternalSavingsSort skip them.
+   	*/
+    private void fillDirectedEdgeList()
+    {
+    	int depotId = NodeList[0].getId();
+    	int n = 0;
+    	for (int i = 1; i < NodeList.length - 1; i++) // node 0 is the depot
+    	{
+    		int iId = NodeList[i].getId();
+    		for (int j = i + 1; j < NodeList.length; j++)
+    		{
+    			int jId = NodeList[j].getId();
+    			double cij = costMatrix.getCost(iId, jId);
+    			double cji = costMatrix.getCost(jId, iId);
+    			EdgeList[n++] = new Edge(NodeList[i], NodeList[j], cij,
+    					finiteSavings(costMatrix.getCost(iId, depotId) + costMatrix.getCost(depotId, jId) - cij));
+    			EdgeList[n++] = new Edge(NodeList[j], NodeList[i], cji,
+    					finiteSavings(costMatrix.getCost(jId, depotId) + costMatrix.getCost(depotId, iId) - cji));
+    		}
+    	}
+    }
+    
+    /**
+   	* @brief Gets the savings of an edge that can be merged, Double.NEGATIVE_INFINITY for the other ones
+   	*
+   	* @param savings - double savings computed from the costs, infinite or NaN if some costs are missing
+   	* 
+   	* @return double - the same savings if finite, Double.NEGATIVE_INFINITY otherwise
+   	*/
+    private static double finiteSavings(double savings)
+    {
+    	return Double.isNaN(savings) || Double.isInfinite(savings) ? Double.NEGATIVE_INFINITY : savings;
+    }
+    
+    /**
+   	* @brief Creates one sorted savings list for each given generalized savings parameterization
+   	*
+   	* @remarks All lists are computed in a single pass: each row of distances is computed once and
+   	* then used for every parameterization. Every list has its own edges, whose savings keep the
+   	* classical value (used for the route costs) while the generalized value is the sorting priority.
+   	* Asymmetric cost matrices are not supported.
+   	*
+   	* @param parameters - SavingsParameters[] parameterizations of the generalized savings
+   	* 
+   	* @return Edge[][] - one savings list, sorted by ascending generalized savings, per parameterization
+   	*/
+    public Edge[][] createGeneralizedSavingsLists(SavingsParameters[] parameters)
+    {
+    	int size = NodeList.length;
+    	int nEdges = (int) getNEdges(); // The depot is not considered
+    	Edge[][] lists = new Edge[parameters.length][nEdges];
+    	
+    	// 1. Coordinates, depot distances and demands relative to the mean customer demand
+    	double[] x = GeometryKernel.getX(NodeList);
+    	double[] y = GeometryKernel.getY(NodeList);
+    	double[] depotDistances = calcDepotCosts(x, y);
+    	double[] demands = new double[size];
+    	double totalDemand = 0;
+    	for (int i = 1; i < size; i++)
+    	{
+    		totalDemand += NodeList[i].getDemand();
+    	}
+    	double meanDemand = (size > 1 && totalDemand > 0) ? totalDemand / (size - 1) : 1;
+    	for (int i = 1; i < size; i++)
+    	{
+    		demands[i] = NodeList[i].getDemand() / meanDemand;
+    	}
+    	
+    	// 2. Fused pass: one row of distances, every parameterization
+    	double[] costsRow = new double[size];
+    	double[] savingsRow = new double[size];
+    	double[] generalizedRow = new double[size];
+    	int n = 0;
+    	for (int i = 1; i < size - 1; i++) // node 0 is the depot
+    	{
+    		calcCostsRow(x, y, i, i + 1, size, costsRow);
+    		GeometryKernel.savingsRow(depotDistances, i, i + 1, size, costsRow, i + 1, savingsRow);
+    		Node iNode = NodeList[i];
+    		for (int p = 0; p < parameters.length; p++)
+    		{
+    			GeometryKernel.generalizedSavingsRow(depotDistances, demands, i, i + 1, size, costsRow, i + 1,
+    					parameters[p], generalizedRow);
+    			Edge[] list = lists[p];
+    			for (int j = i + 1; j < size; j++)
+    			{
+    				Edge ijEdge = new Edge(iNode, NodeList[j], costsRow[j - i - 1], savingsRow[j - i - 1]);
+    				ijEdge.setPriority(generalizedRow[j - i - 1]);
+    				list[n + j - i - 1] = ijEdge;
+    			}
+    		}
+    		n += size - i - 1;
+    	}
+    	
+    	// 3. Sort every list by its generalized savings
+    	for (int p = 0; p < parameters.length; p++)
+    	{
+    		Arrays.sort(lists[p]);
+    	}
+    	return lists;
+    }
+    
+    /**
+   	* @brief Adds a new node to the problem, inserting its savings edges into the sorted edge list
+   	*
+   	* @remarks The edge list must have been sorted before (SRGCWSCS.createSavingsList()). Only the
+   	* n - 1 new edges are sorted, then they are merged with the current list in linear time, from the
+   	* end of the list grown in place (a Java array can not grow, so it is copied once by Arrays.copyOf).
+   	*
+   	* @param node - Node new customer to be added
+   	*/
+    public void addNode(Node node)
+    {
+    	if (costMatrix != null)
+    	{
+    		System.out.println("Error in addNode() method: the cost matrix has no costs for a new node");
+    		return;
+    	}
+    	int n = NodeList.length;
+    	Node[] newNodeList = Arrays.copyOf(NodeList, n + 1);
+    	newNodeList[n] = node;
+    	
+    	if (EdgeList != null)
+    	{
+    		// 1. Create and sort the savings edges of the new node
+    		Edge[] newEdges = new Edge[n - 1];
+    		for (int i = 1; i < n; i++) // node 0 is the depot
+    		{
+    			newEdges[i - 1] = new Edge(NodeList[i], node, NodeList[0]);
+    		}
+    		Arrays.sort(newEdges);
+    		
+    		// 2. Merge both sorted lists backwards, the largest savings first, into the grown list
+    		int a = EdgeList.length - 1;
+    		int b = newEdges.length - 1;
+    		EdgeList = Arrays.copyOf(EdgeList, EdgeList.length + newEdges.length);
+    		for (int k = EdgeList.length - 1; b >= 0; k--)
+    		{
+    			if (a >= 0 && compareSavings(EdgeList[a], newEdges[b]) > 0)
+    			{
+    				EdgeList[k] = EdgeList[a--];
+    			}
+    			else
+    			{
+    				EdgeList[k] = newEdges[b--];
+    			}
+    		}
+    	}
+    	NodeList = newNodeList;
+    }
+    
+    /**
+   	* @brief Removes a node from the problem, removing its savings edges from the sorted edge list
+   	*
+   	* @remarks The remaining edges are compacted in place and keep their order, so the list is still
+   	* sorted; the array is then trimmed to the edges left. The ids of the other nodes are not changed.
+   	*
+   	* @param node - Node customer to be removed (the depot can not be removed)
+   	*/
+    public void removeNode(Node node)
+    {
+    	int index = -1;
+    	for (int i = 1; i < NodeList.length; i++) // node 0 is the depot
+    	{
+    		if (NodeList[i] == node)
+    		{
+    			index = i;
+    			break;
+    		}
+    	}
+    	if (index < 0)
+    	{
+    		System.out.println("Error in removeNode() method: node " + node.getId() + " is not a customer");
+    		return;
+    	}
+    	
+    	Node[] newNodeList = new Node[NodeList.length - 1];
+    	System.arraycopy(NodeList, 0, newNodeList, 0, index);
+    	System.arraycopy(NodeList, index + 1, newNodeList, index, NodeList.length - index - 1);
+    	
+    	if (EdgeList != null)
+    	{
+    		int k = 0;
+    		for (int e = 0; e < EdgeList.length; e++)
+    		{
+    			if (EdgeList[e].getOrigin() != node && EdgeList[e].getEnd() != node)
+    			{
+    				EdgeList[k++] = EdgeList[e];
+    			}
+    		}
+    		EdgeList = Arrays.copyOf(EdgeList, k);
+    	}
+    	NodeList = newNodeList;
+    }
+    
+    /**
+   	* @brief Compares two edges by savings, breaking ties by node ids as in the order of fillEdgeList()
+   	*
+   	* @return int - negative, zero or positive as the first edge goes before, with or after the second one
+   	*/
+    private static int compareSavings(Edge e1, Edge e2)
+    {
+    	int cmp = e1.compareTo(e2);
+    	if (cmp == 0)
+    	{
+    		cmp = e1.getOrigin().getId() - e2.getOrigin().getId();
+    	}
+    	if (cmp == 0)
+    	{
+    		cmp = e1.getEnd().getId() - e2.getEnd().getId();
+    	}
+    	return cmp;
+    }
+    
+    /**
+   	* @brief Builds the sorted savings list outside the Java heap, indexed by long positions
+   	*
+   	* @remarks Used for instances whose savings list does not fit in an array. With a positive
+   	* number of neighbours the list is granular: an edge (i, j) is kept only if j is one of the
+   	* nearest neighbours of i or i one of the nearest neighbours of j, so memory grows linearly with
+   	* the number of nodes. Pairs missing in a sparse cost matrix are left out. Asymmetric cost
+   	* matrices are not supported.
+   	*
+   	* @param nNeighbours - int number of nearest neighbours per customer, 0 to keep every edge
+   	* 
+   	* @param compact - boolean true to store the savings as floats
+   	* 
+   	* @return SavingsStore - sorted savings list, null if it could not be built
+   	*/
+    public SavingsStore createSavingsStore(int nNeighbours, boolean compact)
+    {
+    	if (costMatrix != null && costMatrix.isAsymmetric())
+    	{
+    		System.out.println("Error in createSavingsStore() method: asymmetric cost matrices are not supported");
+    		return null;
+    	}
+    	int size = NodeList.length;
+    	double[] x = GeometryKernel.getX(NodeList);
+    	double[] y = GeometryKernel.getY(NodeList);
+    	double[] depotCosts = calcDepotCosts(x, y);
+    	boolean granular = nNeighbours > 0 && nNeighbours < size - 2;
+    	try
+    	{
+    		savingsStore = new SavingsStore(granular ? (long) (size - 1) * nNeighbours : getNEdges(), compact);
+    	}
+    	catch (IOException exception)
+    	{
+    		System.out.println("Error in createSavingsStore() method: " + exception.getMessage());
+    		savingsStore = null;
+    		return null;
+    	}
+    	
+    	if (granular)
+    	{
+    		// 1. Granular list: only the edges to the nearest neighbours
+    		int[][] neighbours = new int[size][];
+    		double[][] neighbourCosts = new double[size][];
+    		calcNeighbours(x, y, nNeighbours, neighbours, neighbourCosts);
+    		for (int i = 1; i < size; i++) // node 0 is the depot
+    		{
+    			for (int k = 0; k < nNeighbours; k++)
+    			{
+    				int j = neighbours[i][k];
+    				// Each pair is added once, by its smaller node unless it is not a neighbour of it
+    				if ((j > i || !contains(neighbours[j], i)) && !Double.isInfinite(neighbourCosts[i][k]))
+    				{
+    					savingsStore.add(Math.min(i, j), Math.max(i, j), depotCosts[i] + depotCosts[j] - neighbourCosts[i][k]);
+    				}
+    			}
+    		}
+    	}
+    	else
+    	{
+    		// 2. Complete list, one row of edges (i, j > i) at a time
+    		double[] costsRow = new double[size];
+    		double[] savingsRow = new double[size];
+    		for (int i = 1; i < size - 1; i++) // node 0 is the depot
+    		{
+    			calcCostsRow(x, y, i, i + 1, size, costsRow);
+    			GeometryKernel.savingsRow(depotCosts, i, i + 1, size, costsRow, i + 1, savingsRow);
+    			for (int j = i + 1; j < size; j++)
+    			{
+    				if (!Double.isInfinite(costsRow[j - i - 1]))
+    				{
+    					savingsStore.add(i, j, savingsRow[j - i - 1]);
+    				}
+    			}
+    		}
+    	}
+    	savingsStore.sort();
+    	return savingsStore;
+    }
+    
+    /**
+   	* @brief Calculates the nearest customers of every customer
+   	*
+   	* @param x - double[] x coordinates of the nodes
+   	* 
+   	* @param y - double[] y coordinates of the nodes
+   	* 
+   	* @param nNeighbours - int number of neighbours per customer
+   	* 
+   	* @param neighbours - int[][] output, neighbours[i] are the indexes of the nearest customers of i, nearest first
+   	* 
+   	* @param neighbourCosts - double[][] output, neighbourCosts[i][k] is the cost from i to neighbours[i][k]
+   	*/
+    private void calcNeighbours(double[] x, double[] y, int nNeighbours, int[][] neighbours, double[][] neighbourCosts)
+    {
+    	int size = NodeList.length;
+    	double[] costsRow = new double[size];
+    	for (int i = 1; i < size; i++) // node 0 is the depot
+    	{
+    		calcCostsRow(x, y, i, 0, size, costsRow);
+    		int[] nearest = new int[nNeighbours];
+    		double[] nearestCosts = new double[nNeighbours];
+    		int count = 0;
+    		for (int j = 1; j < size; j++)
+    		{
+    			double c = costsRow[j];
+    			if (j == i || (count == nNeighbours && c >= nearestCosts[count - 1]))
+    			{
+    				continue;
+    			}
+    			// Insertion in the sorted array of the nearest customers found so far
+    			int k = (count < nNeighbours) ? count++ : count - 1;
+    			while (k > 0 && nearestCosts[k - 1] > c)
+    			{
+    				nearest[k] = nearest[k - 1];
+    				nearestCosts[k] = nearestCosts[k - 1];
+    				k--;
+    			}
+    			nearest[k] = j;
+    			nearestCosts[k] = c;
+    		}
+    		neighbours[i] = nearest;
+    		neighbourCosts[i] = nearestCosts;
+    	}
+    }
+    
+    /**
+   	* @brief Checks whether an array contains a value
+   	*/
+    private static boolean contains(int[] values, int value)
+    {
+    	for (int k = 0; k < values.length; k++)
+    	{
+    		if (values[k] == value)
+    		{
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+    
+    /**
+   	* @brief Gets the sorted savings list stored outside the heap
+   	*
+   	* @return SavingsStore - savings list, null when it is kept in the heap
+   	*/
+    public SavingsStore getSavingsStore()
+    {
+    	return savingsStore;
+    }
+    
+    /**
+   	* @brief Sorts the savings list on disk with an external merge sort
+   	*
+   	* @remarks For instances whose savings list does not fit in memory. Only runSize edges are held
+   	* in memory at once, see ExternalSavingsSort.
+   	*
+   	* @param directory - String directory for the temporary files
+   	* 
+   	* @param runSize - int maximum number of edges sorted in memory at once
+   	* 
+   	* @return ExternalSavingsSort - sorted savings list, null if it could not be sorted
+   	*/
+    public ExternalSavingsSort sortSavingsExternally(String directory, int runSize)
+    {
+    	ExternalSavingsSort sorter = new ExternalSavingsSort(new File(directory), runSize);
+    	try
+    	{
+    		sorter.sort(this);
+    		externalSavings = sorter;
+    	}
+    	catch (IOException exception)
+    	{
+    		System.out.println("Error sorting savings on disk: " + exception);
+    		sorter.delete();
+    		externalSavings = null;
+    	}
+    	return externalSavings;
+    }
+    
+    /**
+   	* @brief Gets the savings list sorted on disk
+   	*
+   	* @return ExternalSavingsSort - sorted savings list, null when it is kept in memory
+   	*/
+    public ExternalSavingsSort getExternalSavings()
+    {
+    	return externalSavings;
+    }
+    
+    /**
+   	* @brief Builds the distance matrix and the sorted savings list into files and maps them in memory
+   	*
+   	* @remarks Files built by a previous run for the same instance are mapped without recomputing them.
+   	* If the files can not be mapped, the in-heap savings list is used instead.
+   	*
+   	* @param directory - String directory where the files are stored
+   	* 
+   	* @param name - String base name for the files (usually the instance name)
+   	* 
+   	* @return MappedMatrices - mapped matrices, null if they could not be mapped
+   	*/
+    public MappedMatrices mapMatrices(String directory, String name)
+    {
+    	return mapMatrices(directory, name, false);
+    }
+
+    /**
+   	* @brief Builds the distance matrix and the sorted savings list into files and maps them in memory
+   	*
+   	* @remarks Compact mode stores distances and savings as floats, see MappedMatrices.
+   	*
+   	* @param directory - String directory where the files are stored
+   	* 
+   	* @param name - String base name for the files (usually the instance name)
+   	* 
+   	* @param compact - boolean true to store distances and savings as floats
+   	* 
+   	* @return MappedMatrices - mapped matrices, null if they could not be mapped
+   	*/
+    public MappedMatrices mapMatrices(String directory, String name, boolean compact)
+    {
+    	if (costMatrix != null)
+    	{
+    		System.out.println("Error mapping matrices: mapped matrices are only built from euclidean distances");
+    		return null;
+    	}
+    	try
+    	{
+    		mappedMatrices = MappedMatrices.open(this, new File(directory), name, compact);
+    	}
+    	catch (IOException exception)
+    	{
+    		System.out.println("Error mapping matrices: " + exception);
+    		mappedMatrices = null;
+    	}
+    	return mappedMatrices;
+    }
+
+    /**
+   	* @brief Gets the distance matrix and savings list mapped in memory
+   	*
+   	* @return MappedMatrices - mapped matrices, null when they are kept in the heap
+   	*/
+    public MappedMatrices getMappedMatrices()
+    {
+    	return mappedMatrices;
+    }
+    
 }
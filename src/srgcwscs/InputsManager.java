@@ -47,6 +47,11 @@ public class InputsManager
      */
 	private String vehicleFilePath;
 	
+	/**
+     * @brief cost matrix file path, null if costs are the euclidean distances
+     */
+	private String costMatrixFilePath;
+	
 	/**
      * @brief Inputs instance, stores inputs features
      */
@@ -61,9 +66,24 @@ public class InputsManager
    	* @param inputsVehicleFilePath .path for vehicle features file
    	*/
     public InputsManager(String inputsFilePath, String inputsVehicleFilePath) 
+    {
+        this(inputsFilePath, inputsVehicleFilePath, null);
+    }
+
+    /**
+   	* @brief InputsManager Constructor
+   	*
+   	* @param inputsFilePath - path for inputs file
+   	* 
+   	* @param inputsVehicleFilePath .path for vehicle features file
+   	* 
+   	* @param inputsCostMatrixFilePath - path for the cost matrix file (see CostMatrix), null to use euclidean distances
+   	*/
+    public InputsManager(String inputsFilePath, String inputsVehicleFilePath, String inputsCostMatrixFilePath) 
     {
         filePath = inputsFilePath;
         vehicleFilePath=inputsVehicleFilePath;
+        costMatrixFilePath = inputsCostMatrixFilePath;
     }
 
     /**
@@ -103,6 +123,13 @@ public class InputsManager
                     double y = in.nextDouble();
                     int demand = in.nextInt();
                     Node node = new Node(k, x, y, demand);
+                    // Optional columns: ready time, due time and service time (CVRPTW)
+                    String[] window = (in.hasNextLine() ? in.nextLine() : "").trim().split("\\s+");
+                    if (window.length >= 2)
+                    {
+                    	node.setTimeWindow(Double.parseDouble(window[0]), Double.parseDouble(window[1]),
+                    			window.length > 2 ? Double.parseDouble(window[2]) : 0);
+                    }
                     inputs.setNode(k, node);
                     k++;
                 }
@@ -128,6 +155,21 @@ public class InputsManager
             }
             in2.close();
 
+            //INPUT COST MATRIX
+            if (costMatrixFilePath != null)
+            {
+            	CostMatrix costMatrix = CostMatrix.load(costMatrixFilePath);
+            	if (costMatrix.getSize() != nnodes)
+            	{
+            		System.out.println("Error processing cost matrix file: " + costMatrix.getSize()
+            				+ " nodes found, " + nnodes + " expected");
+            	}
+            	else
+            	{
+            		inputs.setCostMatrix(costMatrix);
+            	}
+            }
+
         } catch (IOException exception) {
             System.out.println("Error processing inputs file: " + exception);
         }
@@ -0,0 +1,301 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+* @class LargeBuffer srgcwscs.LargeBuffer
+*
+* @brief This class represents a long-indexed byte buffer, backed by a file mapped in memory, either
+* a given file or a temporary one.
+*
+* @remarks A single ByteBuffer cannot exceed 2GB, so the buffer is split in segments of 1GB.
+* Callers must keep every value aligned to its own size (e.g. doubles at multiples of 8), so that
+* no value straddles two segments. Temporary buffers are not allocated in direct memory, which the
+* JVM limits to -XX:MaxDirectMemorySize (by default the heap size): the operating system pages
+* the mapped file in and out, so a buffer may be larger than the heap.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class LargeBuffer
+{
+	/**
+     * @brief Number of bits used for the offset inside a segment
+     */
+	private static final int SEGMENT_BITS = 30;
+
+	/**
+     * @brief Segment size in bytes
+     */
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+	/**
+     * @brief Mask to get the offset inside a segment
+     */
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	/**
+     * @brief Backing file (null once the buffer is closed)
+     */
+	private RandomAccessFile file;
+
+	/**
+     * @brief Temporary file backing the buffer, deleted on close (null for a given file)
+     */
+	private File tempFile;
+
+	/**
+     * @brief Mapped segments
+     */
+	private ByteBuffer[] segments;
+
+	/**
+     * @brief Buffer size in bytes
+     */
+	private long size;
+
+	/**
+	* @brief LargeBuffer Constructor, maps a file in memory
+	*
+	* @param path - File to be mapped, it is created or extended if needed
+	*
+	* @param bytes - long number of bytes to map
+	*
+	* @param readOnly - boolean true for a read only mapping
+	*
+	* @throws IOException if the file can not be mapped
+	*/
+	public LargeBuffer(File path, long bytes, boolean readOnly) throws IOException
+	{
+		map(path, bytes, readOnly);
+	}
+
+	/**
+	* @brief LargeBuffer Constructor, maps a new temporary file in memory
+	*
+	* @remarks The file is created in the default temporary directory (java.io.tmpdir), which must have
+	* room for the buffer, and it is deleted by close() or when the JVM exits
+	*
+	* @param bytes - long number of bytes to allocate
+	*
+	* @throws IOException if the temporary file can not be created or mapped
+	*/
+	public LargeBuffer(long bytes) throws IOException
+	{
+		tempFile = File.createTempFile("buffer", ".tmp");
+		tempFile.deleteOnExit();
+		try
+		{
+			map(tempFile, bytes, false);
+		}
+		catch (IOException exception)
+		{
+			close();
+			throw new IOException("Unable to map a temporary buffer of " + bytes + " bytes in "
+					+ tempFile.getParent() + ": " + exception.getMessage());
+		}
+	}
+
+	/**
+	* @brief Maps a file in memory, split in segments
+	*
+	* @param path - File to be mapped, it is created or extended if needed
+	*
+	* @param bytes - long number of bytes to map
+	*
+	* @param readOnly - boolean true for a read only mapping
+	*
+	* @throws IOException if the file can not be mapped
+	*/
+	private void map(File path, long bytes, boolean readOnly) throws IOException
+	{
+		size = bytes;
+		file = new RandomAccessFile(path, readOnly ? "r" : "rw");
+		if (!readOnly && file.length() < bytes)
+		{
+			file.setLength(bytes);
+		}
+
+		FileChannel channel = file.getChannel();
+		FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+		int nSegments = (int) ((bytes + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+		segments = new ByteBuffer[nSegments];
+		for (int i = 0; i < nSegments; i++)
+		{
+			long start = (long) i << SEGMENT_BITS;
+			long length = Math.min(SEGMENT_SIZE, bytes - start);
+			segments[i] = channel.map(mode, start, length).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/**
+	* @brief Gets the buffer size
+	*
+	* @return long - size in bytes
+	*/
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	* @brief Gets an int value stored at a given position
+	*
+	* @param pos - long byte position
+	*
+	* @return int - stored value
+	*/
+	public int getInt(long pos)
+	{
+		return segments[(int) (pos >>> SEGMENT_BITS)].getInt((int) (pos & SEGMENT_MASK));
+	}
+
+	/**
+	* @brief Stores an int value at a given position
+	*
+	* @param pos - long byte position
+	*
+	* @param value - int value to store
+	*/
+	public void putInt(long pos, int value)
+	{
+		segments[(int) (pos >>> SEGMENT_BITS)].putInt((int) (pos & SEGMENT_MASK), value);
+	}
+
+	/**
+	* @brief Gets a long value stored at a given position
+	*
+	* @param pos - long byte position
+	*
+	* @return long - stored value
+	*/
+	public long getLong(long pos)
+	{
+		return segments[(int) (pos >>> SEGMENT_BITS)].getLong((int) (pos & SEGMENT_MASK));
+	}
+
+	/**
+	* @brief Stores a long value at a given position
+	*
+	* @param pos - long byte position
+	*
+	* @param value - long value to store
+	*/
+	public void putLong(long pos, long value)
+	{
+		segments[(int) (pos >>> SEGMENT_BITS)].putLong((int) (pos & SEGMENT_MASK), value);
+	}
+
+	/**
+	* @brief Gets a float value stored at a given position
+	*
+	* @param pos - long byte position
+	*
+	* @return float - stored value
+	*/
+	public float getFloat(long pos)
+	{
+		return segments[(int) (pos >>> SEGMENT_BITS)].getFloat((int) (pos & SEGMENT_MASK));
+	}
+
+	/**
+	* @brief Stores a float value at a given position
+	*
+	* @param pos - long byte position
+	*
+	* @param value - float value to store
+	*/
+	public void putFloat(long pos, float value)
+	{
+		segments[(int) (pos >>> SEGMENT_BITS)].putFloat((int) (pos & SEGMENT_MASK), value);
+	}
+
+	/**
+	* @brief Gets a double value stored at a given position
+	*
+	* @param pos - long byte position
+	*
+	* @return double - stored value
+	*/
+	public double getDouble(long pos)
+	{
+		return segments[(int) (pos >>> SEGMENT_BITS)].getDouble((int) (pos & SEGMENT_MASK));
+	}
+
+	/**
+	* @brief Stores a double value at a given position
+	*
+	* @param pos - long byte position
+	*
+	* @param value - double value to store
+	*/
+	public void putDouble(long pos, double value)
+	{
+		segments[(int) (pos >>> SEGMENT_BITS)].putDouble((int) (pos & SEGMENT_MASK), value);
+	}
+
+	/**
+	* @brief Flushes the content of the buffer to the backing file
+	*/
+	public void force()
+	{
+		for (int i = 0; i < segments.length; i++)
+		{
+			if (segments[i] instanceof MappedByteBuffer)
+			{
+				((MappedByteBuffer) segments[i]).force();
+			}
+		}
+	}
+
+	/**
+	* @brief Closes the backing file, and deletes it if it is temporary
+	*
+	* @remarks Mapped segments stay valid until they are garbage collected
+	*/
+	public void close()
+	{
+		try
+		{
+			if (file != null)
+			{
+				file.close();
+				file = null;
+			}
+		}
+		catch (IOException exception)
+		{
+			System.out.println("Error closing mapped file: " + exception);
+		}
+		if (tempFile != null)
+		{
+			tempFile.delete(); // otherwise deleted when the JVM exits
+			tempFile = null;
+		}
+	}
+}
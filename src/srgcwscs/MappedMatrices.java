@@ -0,0 +1,422 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+* @class MappedMatrices srgcwscs.MappedMatrices
+*
+* @brief This class keeps the distance matrix and the sorted savings list of a VRP instance in
+* files mapped in memory, so that huge instances do not need to hold them in the Java heap.
+*
+* @remarks The distance file stores the full n x n matrix of doubles. The savings file stores one
+* record (origin index, end index, savings) per customer pair, sorted by ascending savings exactly
+* like SRGCWSCS.createSavingsList() does. Both files start with a header that is marked as complete
+* only after all data has been written, so an interrupted build is never reused. Existing complete
+* files are mapped directly without being recomputed when their header holds the same number of
+* nodes, mode and instance key (the SHA-1 hash of SavingsCache.calcKey()), so the files of an edited
+* instance with the same name and size are rebuilt.
+* In compact mode distances and savings are stored as 32-bit floats (4 bytes per distance and 12
+* bytes per savings record instead of 8 and 16), so more of the list fits in memory and in the CPU
+* caches. Values are still computed in double precision and only rounded when stored, and route
+* costs keep being accumulated in double. Ties created by the rounding are broken by origin and end.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class MappedMatrices
+{
+	/**
+     * @brief Magic number of the distances file ("CWSD")
+     */
+	private static final int DISTANCES_MAGIC = 0x43575344;
+
+	/**
+     * @brief Magic number of the savings file ("CWSS")
+     */
+	private static final int SAVINGS_MAGIC = 0x43575353;
+
+	/**
+     * @brief File format version
+     */
+	private static final int VERSION = 2;
+
+	/**
+     * @brief Position of the instance key in the header
+     */
+	private static final int KEY_POSITION = 32;
+
+	/**
+     * @brief Header size in bytes: magic, version, nNodes, complete flag, nEdges, compact flag, reserved, instance key, reserved
+     */
+	private static final int HEADER_SIZE = 64;
+
+	/**
+     * @brief Number of nodes (depot included)
+     */
+	private int nNodes;
+
+	/**
+     * @brief Number of savings records
+     */
+	private long nEdges;
+
+	/**
+     * @brief true if distances and savings are stored as floats
+     */
+	private boolean compact;
+
+	/**
+     * @brief Mapped distance matrix
+     */
+	private LargeBuffer distances;
+
+	/**
+     * @brief Mapped savings file
+     */
+	private LargeBuffer savings;
+
+	/**
+     * @brief Sorted savings list stored in the mapped savings file
+     */
+	private SavingsStore savingsList;
+
+	/**
+	* @brief MappedMatrices Constructor
+	*
+	* @param n - int number of nodes
+	*
+	* @param compactValues - boolean true if distances and savings are stored as floats
+	*
+	* @param distancesBuffer - LargeBuffer mapped distance matrix
+	*
+	* @param savingsBuffer - LargeBuffer mapped savings list
+	*/
+	private MappedMatrices(int n, boolean compactValues, LargeBuffer distancesBuffer, LargeBuffer savingsBuffer)
+	{
+		nNodes = n;
+		nEdges = (long) (n - 1) * (n - 2) / 2; // The depot is not considered
+		compact = compactValues;
+		distances = distancesBuffer;
+		savings = savingsBuffer;
+		savingsList = new SavingsStore(savings, HEADER_SIZE, nEdges, nEdges, compact);
+	}
+
+	/**
+	* @brief Maps the distance and savings files of an instance, building them first when needed
+	*
+	* @param inputs - Inputs instance whose nodes define the matrices
+	*
+	* @param directory - File directory where the files are stored
+	*
+	* @param name - String base name for the files (usually the instance name)
+	*
+	* @return MappedMatrices - mapped matrices ready to be read
+	*
+	* @throws IOException if the files can not be created or mapped
+	*/
+	public static MappedMatrices open(Inputs inputs, File directory, String name) throws IOException
+	{
+		return open(inputs, directory, name, false);
+	}
+
+	/**
+	* @brief Maps the distance and savings files of an instance, building them first when needed
+	*
+	* @param inputs - Inputs instance whose nodes define the matrices
+	*
+	* @param directory - File directory where the files are stored
+	*
+	* @param name - String base name for the files (usually the instance name)
+	*
+	* @param compact - boolean true to store distances and savings as floats
+	*
+	* @return MappedMatrices - mapped matrices ready to be read
+	*
+	* @throws IOException if the files can not be created or mapped
+	*/
+	public static MappedMatrices open(Inputs inputs, File directory, String name, boolean compact) throws IOException
+	{
+		Node[] nodes = inputs.getNodeList();
+		int n = nodes.length;
+		long nEdges = (long) (n - 1) * (n - 2) / 2;
+		long distancesSize = HEADER_SIZE + (long) n * n * (compact ? 4 : 8);
+		long savingsSize = HEADER_SIZE + nEdges * SavingsStore.getRecordSize(compact);
+
+		if (!directory.exists() && !directory.mkdirs())
+		{
+			throw new IOException("Unable to create directory " + directory);
+		}
+		File distancesFile = new File(directory, name + ".dist");
+		File savingsFile = new File(directory, name + ".sav");
+		byte[] key = SavingsCache.calcKey(inputs);
+
+		if (isComplete(distancesFile, DISTANCES_MAGIC, n, compact, key, distancesSize)
+				&& isComplete(savingsFile, SAVINGS_MAGIC, n, compact, key, savingsSize))
+		{
+			return new MappedMatrices(n, compact, new LargeBuffer(distancesFile, distancesSize, true),
+					new LargeBuffer(savingsFile, savingsSize, true));
+		}
+
+		distancesFile.delete();
+		savingsFile.delete();
+		LargeBuffer distancesBuffer = new LargeBuffer(distancesFile, distancesSize, false);
+		LargeBuffer savingsBuffer = new LargeBuffer(savingsFile, savingsSize, false);
+		MappedMatrices matrices = new MappedMatrices(n, compact, distancesBuffer, savingsBuffer);
+		matrices.build(nodes);
+		writeHeader(distancesBuffer, DISTANCES_MAGIC, n, compact, key, nEdges);
+		writeHeader(savingsBuffer, SAVINGS_MAGIC, n, compact, key, nEdges);
+		return matrices;
+	}
+
+	/**
+	* @brief Checks whether a file holds a completely built matrix for the given number of nodes, mode and instance
+	*
+	* @return boolean - true if the file can be reused
+	*/
+	private static boolean isComplete(File file, int magic, int n, boolean compact, byte[] key, long expectedSize) throws IOException
+	{
+		if (!file.exists() || file.length() != expectedSize)
+		{
+			return false;
+		}
+		LargeBuffer header = new LargeBuffer(file, HEADER_SIZE, true);
+		boolean complete = header.getInt(0) == magic && header.getInt(4) == VERSION
+				&& header.getInt(8) == n && header.getInt(12) == 1 && header.getInt(24) == (compact ? 1 : 0);
+		for (int k = 0; complete && k < key.length / 4; k++)
+		{
+			complete = header.getInt(KEY_POSITION + 4 * k) == getKeyInt(key, k);
+		}
+		header.close();
+		return complete;
+	}
+
+	/**
+	* @brief Writes the header of a file and marks it as complete
+	*/
+	private static void writeHeader(LargeBuffer buffer, int magic, int n, boolean compact, byte[] key, long nEdges)
+	{
+		buffer.force();
+		buffer.putInt(0, magic);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, n);
+		buffer.putLong(16, nEdges);
+		buffer.putInt(24, compact ? 1 : 0);
+		for (int k = 0; k < key.length / 4; k++)
+		{
+			buffer.putInt(KEY_POSITION + 4 * k, getKeyInt(key, k));
+		}
+		buffer.putInt(12, 1);
+		buffer.force();
+	}
+
+	/**
+	* @brief Gets four bytes of the instance key as an int, the way they are stored in the header
+	*
+	* @param key - byte[] instance key
+	*
+	* @param k - int index of the int
+	*
+	* @return int - bytes 4k to 4k + 3 of the key, big-endian
+	*/
+	private static int getKeyInt(byte[] key, int k)
+	{
+		return (key[4 * k] & 0xFF) << 24 | (key[4 * k + 1] & 0xFF) << 16 | (key[4 * k + 2] & 0xFF) << 8 | (key[4 * k + 3] & 0xFF);
+	}
+
+	/**
+	* @brief Computes the distance matrix and the sorted savings list
+	*
+	* @param nodes - Node[] nodes of the instance, the depot in position 0
+	*/
+	private void build(Node[] nodes)
+	{
+		double[] x = GeometryKernel.getX(nodes);
+		double[] y = GeometryKernel.getY(nodes);
+		double[] depotDistances = new double[nNodes];
+		double[] distancesRow = new double[nNodes];
+		double[] savingsRow = new double[nNodes];
+		GeometryKernel.distanceRow(x, y, x[0], y[0], 0, nNodes, depotDistances);
+
+		long k = 0;
+		for (int i = 0; i < nNodes; i++)
+		{
+			// 1. Distance matrix row
+			GeometryKernel.distanceRow(x, y, x[i], y[i], 0, nNodes, distancesRow);
+			for (int j = 0; j < nNodes; j++)
+			{
+				putDistance(i, j, distancesRow[j]);
+			}
+
+			// 2. Savings of the edges (i, j > i), in the same order as Inputs.fillEdgeList()
+			if (i == 0) // node 0 is the depot
+			{
+				continue;
+			}
+			GeometryKernel.savingsRow(depotDistances, i, i + 1, nNodes, distancesRow, 0, savingsRow);
+			for (int j = i + 1; j < nNodes; j++)
+			{
+				savingsList.set(k, i, j, savingsRow[j - i - 1]);
+				k++;
+			}
+		}
+
+		// 3. Sort the savings list in place
+		savingsList.sort();
+	}
+
+	/**
+	* @brief Stores the distance between two nodes
+	*/
+	private void putDistance(int i, int j, double distance)
+	{
+		long k = (long) i * nNodes + j;
+		if (compact)
+		{
+			distances.putFloat(HEADER_SIZE + k * 4, (float) distance);
+		}
+		else
+		{
+			distances.putDouble(HEADER_SIZE + k * 8, distance);
+		}
+	}
+
+	/**
+	* @brief Checks whether distances and savings are stored as floats
+	*
+	* @return boolean - true in compact mode
+	*/
+	public boolean isCompact()
+	{
+		return compact;
+	}
+
+	/**
+	* @brief Gets the number of nodes
+	*
+	* @return int - number of nodes, depot included
+	*/
+	public int getNNodes()
+	{
+		return nNodes;
+	}
+
+	/**
+	* @brief Gets the number of savings records
+	*
+	* @return long - number of savings records
+	*/
+	public long getNEdges()
+	{
+		return nEdges;
+	}
+
+	/**
+	* @brief Gets the distance between two nodes
+	*
+	* @param i - int index of the first node
+	*
+	* @param j - int index of the second node
+	*
+	* @return double - distance
+	*/
+	public double getDistance(int i, int j)
+	{
+		long k = (long) i * nNodes + j;
+		if (compact)
+		{
+			return distances.getFloat(HEADER_SIZE + k * 4);
+		}
+		return distances.getDouble(HEADER_SIZE + k * 8);
+	}
+
+	/**
+	* @brief Gets the origin node index of the k-th savings record
+	*
+	* @param k - long position in the sorted savings list
+	*
+	* @return int - origin node index
+	*/
+	public int getOrigin(long k)
+	{
+		return savingsList.getOrigin(k);
+	}
+
+	/**
+	* @brief Gets the end node index of the k-th savings record
+	*
+	* @param k - long position in the sorted savings list
+	*
+	* @return int - end node index
+	*/
+	public int getEnd(long k)
+	{
+		return savingsList.getEnd(k);
+	}
+
+	/**
+	* @brief Gets the savings value of the k-th savings record
+	*
+	* @param k - long position in the sorted savings list
+	*
+	* @return double - savings value
+	*/
+	public double getSavings(long k)
+	{
+		return savingsList.getSavings(k);
+	}
+
+	/**
+	* @brief Gets the sorted savings list stored in the mapped savings file
+	*
+	* @return SavingsStore - sorted savings list
+	*/
+	public SavingsStore getSavingsStore()
+	{
+		return savingsList;
+	}
+
+	/**
+	* @brief Builds an Edge for the k-th savings record without recomputing its geometry
+	*
+	* @param k - long position in the sorted savings list
+	*
+	* @param nodes - Node[] nodes of the instance
+	*
+	* @return Edge - edge connecting the two nodes of the record
+	*/
+	public Edge getEdge(long k, Node[] nodes)
+	{
+		int origin = getOrigin(k);
+		int end = getEnd(k);
+		return new Edge(nodes[origin], nodes[end], getDistance(origin, end), getSavings(k));
+	}
+
+	/**
+	* @brief Closes the mapped files
+	*/
+	public void close()
+	{
+		distances.close();
+		savings.close();
+	}
+}
@@ -0,0 +1,738 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+* @class MultiDepot srgcwscs.MultiDepot
+*
+* @brief This class solves a multi-depot VRP as one CWS sub-problem per depot, the sub-problems of
+* each round being solved concurrently.
+*
+* @remarks The first nodes of the instance are the depots. Every customer is a candidate of its nearest
+* depot and of the other ones not much further (CANDIDATE_RATIO), up to MAX_CANDIDATES. The savings list
+* of a depot, over the pairs of its candidates, is computed and sorted once in the constructor; in each
+* round the list of a sub-problem is filtered from it, which keeps the order. Customers start at their
+* nearest depot, and between rounds they are re-assigned from the best assignment so far with a biased
+* random choice among their candidates, so a round only costs the filtering and the CWS iterations.
+* A limited fleet (several classes) is split once among the depots, each class in proportion to the
+* demand of the customers nearest to each depot, so the routes of all the depots never take more
+* vehicles than the fleet has; an unlimited fleet serves every depot.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class MultiDepot
+{
+	/**
+     * @brief Largest number of candidate depots of a customer
+     */
+	private static final int MAX_CANDIDATES = 2;
+
+	/**
+     * @brief A depot is a candidate of a customer if it is at most this times further than the nearest one
+     */
+	private static final double CANDIDATE_RATIO = 1.5;
+
+	/**
+     * @brief Parameter of the geometric draws of the re-assignment: the number of customers moved and their new depot
+     */
+	private static final double REASSIGN_BETA = 0.7;
+
+	/**
+     * @brief Inputs of the whole instance
+     */
+	private Inputs inputs;
+
+	/**
+     * @brief Test set of characteristics for the test to be run
+     */
+	private Test aTest;
+
+	/**
+     * @brief Number of depots, the first nodes of the instance
+     */
+	private int nDepots;
+
+	/**
+     * @brief Candidate depots of each customer, nearest first (indexed by node position)
+     */
+	private int[][] candidates;
+
+	/**
+     * @brief Savings list of each depot over the pairs of its candidate customers, sorted by ascending savings
+     */
+	private Edge[][] depotSavingsLists;
+
+	/**
+     * @brief Vehicles of each depot, its share of the fleet
+     */
+	private Fleet[] depotFleets;
+
+	/**
+     * @brief Random numbers of the re-assignment
+     */
+	private Random random;
+
+	/**
+     * @brief Depot of each customer in the best solution so far (indexed by node position)
+     */
+	private int[] bestAssignment;
+
+	/**
+     * @brief Depot of each customer in the next round
+     */
+	private int[] assignment;
+
+	/**
+     * @brief Customers with several candidate depots (node positions)
+     */
+	private int[] boundary;
+
+	/**
+     * @brief Customers of the next round whose depot differs from the best assignment (node positions)
+     */
+	private int[] moved;
+
+	/**
+     * @brief Number of entries of moved in use
+     */
+	private int nMoved;
+
+	/**
+     * @brief Solver of each depot in the best solution so far, kept to go on with its iterations
+     */
+	private RandCWS[] bestSolvers;
+
+	/**
+     * @brief Filtered savings list of each depot in the best solution so far
+     */
+	private Edge[][] bestLists;
+
+	/**
+     * @brief Routes of each depot in the best solution so far
+     */
+	private CompactSolution[] bestDepotSols;
+
+	/**
+     * @brief Best solution so far, over all the calls to solve() (null before the first round)
+     */
+	private Solution bestSol;
+
+	/**
+     * @brief Threads solving the depot sub-problems, kept for all the calls to solve() until close()
+     */
+	private ExecutorService pool;
+
+	/**
+	* @brief MultiDepot Constructor, computes the candidate depots and the savings list of each depot
+	*
+	* @remarks The instance must list its depots first: nodes 0 to depots - 1 are taken as depots and
+	* every later node as a customer. A depot with demand is reported, since it is most likely a customer
+	* and the instance has fewer depots or a different layout.
+	*
+	* @param test - Test set of characteristics for the test to be run
+	*
+	* @param inputData - Inputs nodes (the depots first), vehicles and costs of the instance
+	*
+	* @param depots - int number of depots
+	*/
+	public MultiDepot(Test test, Inputs inputData, int depots)
+	{
+		aTest = test;
+		inputs = inputData;
+		nDepots = depots;
+		random = new Random(Math.max(aTest.getSeed(), 128));
+		Node[] nodes = inputs.getNodeList();
+		for (int d = 0; d < nDepots; d++)
+		{
+			if (nodes[d].getDemand() != 0)
+			{
+				System.out.println("Error in MultiDepot() constructor: node " + nodes[d].getId() + " has demand "
+						+ nodes[d].getDemand() + ", the first " + nDepots + " nodes of the instance must be its depots");
+			}
+		}
+
+		// 1. Candidate depots of each customer
+		candidates = new int[nodes.length][];
+		int[] nCandidates = new int[nDepots];
+		for (int i = nDepots; i < nodes.length; i++)
+		{
+			Integer[] order = new Integer[nDepots];
+			final double[] costs = new double[nDepots];
+			for (int d = 0; d < nDepots; d++)
+			{
+				order[d] = d;
+				costs[d] = calcCosts(nodes[d], nodes[i]) + calcCosts(nodes[i], nodes[d]);
+			}
+			Arrays.sort(order, new Comparator<Integer>()
+			{
+				public int compare(Integer a, Integer b)
+				{
+					return Double.compare(costs[a], costs[b]);
+				}
+			});
+			int k = 1;
+			while (k < Math.min(MAX_CANDIDATES, nDepots) && costs[order[k]] <= CANDIDATE_RATIO * costs[order[0]])
+			{
+				k++;
+			}
+			candidates[i] = new int[k];
+			for (int c = 0; c < k; c++)
+			{
+				candidates[i][c] = order[c];
+				nCandidates[order[c]]++;
+			}
+		}
+
+		// 2. Savings list of each depot
+		depotSavingsLists = new Edge[nDepots][];
+		for (int d = 0; d < nDepots; d++)
+		{
+			depotSavingsLists[d] = createSavingsList(d, nCandidates[d]);
+		}
+
+		bestAssignment = new int[nodes.length];
+		for (int i = nDepots; i < nodes.length; i++)
+		{
+			bestAssignment[i] = candidates[i][0]; // nearest depot
+		}
+		assignment = bestAssignment.clone();
+		splitFleet();
+		int nBoundary = 0;
+		for (int i = nDepots; i < nodes.length; i++)
+		{
+			if (candidates[i].length > 1)
+			{
+				nBoundary++;
+			}
+		}
+		boundary = new int[nBoundary];
+		for (int i = nDepots, k = 0; i < nodes.length; i++)
+		{
+			if (candidates[i].length > 1)
+			{
+				boundary[k++] = i;
+			}
+		}
+		moved = new int[nBoundary];
+		nMoved = 0;
+		bestSolvers = new RandCWS[nDepots];
+		bestLists = new Edge[nDepots][];
+		bestDepotSols = new CompactSolution[nDepots];
+		bestSol = null;
+
+		int nThreads = Math.max(1, Math.min(nDepots, Runtime.getRuntime().availableProcessors()));
+		pool = Executors.newFixedThreadPool(nThreads, new ThreadFactory()
+		{
+			public Thread newThread(Runnable task)
+			{
+				Thread thread = new Thread(task, "MultiDepot");
+				thread.setDaemon(true); // a pool not closed does not keep the application running
+				return thread;
+			}
+		});
+	}
+
+	/**
+	* @brief Solves the instance in rounds, the depot sub-problems of each round being solved concurrently
+	*
+	* @remarks The first round assigns every customer to its nearest depot, every later one (in this call
+	* or the next ones) moves a few customers from the best assignment so far
+	*
+	* @param rounds - int number of rounds
+	*
+	* @param iterations - int randomized CWS iterations of each sub-problem per round
+	*
+	* @return Solution - best solution so far, the routes of every depot
+	*/
+	public Solution solve(int rounds, int iterations)
+	{
+		for (int r = 0; r < rounds; r++)
+		{
+			if (!solveRound(iterations))
+			{
+				break;
+			}
+			reassign();
+		}
+		return bestSol;
+	}
+
+	/**
+	* @brief Stops the threads solving the depot sub-problems, solve() can not be called any more
+	*/
+	public void close()
+	{
+		pool.shutdown();
+	}
+
+	/**
+	* @brief Solves the depot sub-problems of the current assignment concurrently and keeps the best ones
+	*
+	* @remarks Only the depots whose customers have changed get a new sub-problem, the other ones go on
+	* with the randomized iterations of their best one. Each task only writes its own solver (workspace
+	* and random stream) and reads the nodes, costs and savings list of its depot, which no thread
+	* writes. What is shared is left to this thread: the solvers are created here because creating a
+	* random stream advances the static package seed of LFSR113, and the Solution objects are built
+	* here because the ids of routes and edges come from static counters and toSolution() updates
+	* the nodes.
+	*
+	* @param iterations - int randomized CWS iterations of each sub-problem
+	*
+	* @return boolean - false if a sub-problem failed
+	*/
+	private boolean solveRound(final int iterations)
+	{
+		boolean[] changed = new boolean[nDepots];
+		RandCWS[] solvers = new RandCWS[nDepots];
+		Edge[][] lists = new Edge[nDepots][];
+		List<Future<CompactSolution>> results = new ArrayList<Future<CompactSolution>>();
+		for (int d = 0; d < nDepots; d++)
+		{
+			changed[d] = bestSol == null || isChanged(d);
+			if (changed[d])
+			{
+				Inputs depotInputs = createDepotInputs(d, assignment);
+				if (depotInputs.getNodeList().length > 1) // some customer
+				{
+					lists[d] = filterSavingsList(d, assignment, (int) depotInputs.getNEdges());
+					solvers[d] = new RandCWS(aTest, depotInputs);
+				}
+			}
+			else
+			{
+				lists[d] = bestLists[d];
+				solvers[d] = bestSolvers[d];
+			}
+			if (solvers[d] == null)
+			{
+				results.add(null);
+				continue;
+			}
+			final RandCWS solver = solvers[d];
+			final Edge[] savingsList = lists[d];
+			final boolean classical = changed[d];
+			final float incumbentCosts = changed[d] ? Float.POSITIVE_INFINITY : bestDepotSols[d].getCosts();
+			results.add(pool.submit(new Callable<CompactSolution>()
+			{
+				public CompactSolution call()
+				{
+					return solveDepot(solver, savingsList, iterations, classical, incumbentCosts);
+				}
+			}));
+		}
+
+		CompactSolution[] depotSols = new CompactSolution[nDepots];
+		try
+		{
+			for (int d = 0; d < nDepots; d++)
+			{
+				depotSols[d] = results.get(d) == null ? null : results.get(d).get();
+			}
+		}
+		catch (Exception e)
+		{
+			System.out.println("Error in solveRound() method: " + e);
+			return false;
+		}
+
+		// 1. The depots left unchanged may have improved the best solution
+		boolean improved = false;
+		for (int d = 0; d < nDepots; d++)
+		{
+			if (!changed[d] && depotSols[d] != null)
+			{
+				bestDepotSols[d] = depotSols[d]; // only returned when better
+				improved = true;
+			}
+		}
+
+		// 2. The changed depots are kept if the new assignment is better
+		double bestCosts = 0;
+		double roundCosts = 0;
+		for (int d = 0; d < nDepots; d++)
+		{
+			double depotCosts = bestDepotSols[d] == null ? 0 : bestDepotSols[d].getCosts();
+			bestCosts += depotCosts;
+			roundCosts += changed[d] ? (depotSols[d] == null ? 0 : depotSols[d].getCosts()) : depotCosts;
+		}
+		if (bestSol == null || roundCosts < bestCosts)
+		{
+			for (int d = 0; d < nDepots; d++)
+			{
+				if (changed[d])
+				{
+					bestDepotSols[d] = depotSols[d];
+					bestSolvers[d] = solvers[d];
+					bestLists[d] = lists[d];
+				}
+			}
+			System.arraycopy(assignment, 0, bestAssignment, 0, assignment.length);
+			improved = true;
+		}
+
+		if (improved)
+		{
+			bestSol = new Solution();
+			for (int d = 0; d < nDepots; d++)
+			{
+				if (bestDepotSols[d] == null)
+				{
+					continue;
+				}
+				Solution depotSol = bestDepotSols[d].toSolution();
+				bestSol.setCosts(bestSol.getCosts() + depotSol.getCosts());
+				bestSol.setMissingVehicles(bestSol.getMissingVehicles() + depotSol.getMissingVehicles()); // each depot has its own share
+				for (Route aRoute : depotSol.getRoutes())
+				{
+					bestSol.addRoute(aRoute);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	* @brief Runs randomized iterations on a depot sub-problem, after the classical CWS for a new one
+	*
+	* @param solver - RandCWS solver of the sub-problem
+	*
+	* @param savingsList - Edge[] sorted savings list of the sub-problem
+	*
+	* @param iterations - int randomized iterations
+	*
+	* @param classical - boolean true to start with the classical CWS
+	*
+	* @param incumbentCosts - float costs of the best solution of the sub-problem so far
+	*
+	* @return CompactSolution - best solution found, null if none is better than the incumbent
+	*/
+	private CompactSolution solveDepot(RandCWS solver, Edge[] savingsList, int iterations, boolean classical,
+			float incumbentCosts)
+	{
+		CompactSolution best = null;
+		float bestCosts = incumbentCosts;
+		if (classical)
+		{
+			bestCosts = solver.solveInWorkspace(savingsList, false, Float.POSITIVE_INFINITY);
+			best = solver.getWorkspaceEncoding();
+		}
+		for (int k = 0; k < iterations; k++)
+		{
+			float costs = solver.solveInWorkspace(savingsList, true, bestCosts);
+			if (costs < bestCosts)
+			{
+				bestCosts = costs;
+				best = solver.getWorkspaceEncoding();
+			}
+		}
+		return best;
+	}
+
+	/**
+	* @brief Checks whether the customers of a depot differ from the ones of the best assignment
+	*
+	* @param d - int depot
+	*
+	* @return boolean - true if a customer has been moved to or from the depot
+	*/
+	private boolean isChanged(int d)
+	{
+		for (int k = 0; k < nMoved; k++)
+		{
+			int i = moved[k];
+			if (assignment[i] == d || bestAssignment[i] == d)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	* @brief Moves a few customers from the best assignment so far to another candidate depot
+	*
+	* @remarks The number of customers moved is 1 plus a geometric draw of parameter REASSIGN_BETA, each of
+	* them chosen at random among the customers with several candidates. A customer moves to the nearest
+	* of its other candidates with probability REASSIGN_BETA, to the next one otherwise, and so on.
+	*/
+	private void reassign()
+	{
+		for (int k = 0; k < nMoved; k++)
+		{
+			assignment[moved[k]] = bestAssignment[moved[k]];
+		}
+		nMoved = 0;
+		if (boundary.length == 0)
+		{
+			return;
+		}
+		do
+		{
+			int i = boundary[random.nextInt(boundary.length)];
+			int[] iCandidates = candidates[i];
+			if (assignment[i] != bestAssignment[i]) // already moved
+			{
+				continue;
+			}
+			int pos = 1;
+			while (pos < iCandidates.length - 1 && random.nextDouble() >= REASSIGN_BETA)
+			{
+				pos++;
+			}
+			for (int c = 0, skipped = 0; c < iCandidates.length; c++) // pos-th candidate other than the best depot
+			{
+				if (iCandidates[c] != bestAssignment[i] && ++skipped == pos)
+				{
+					assignment[i] = iCandidates[c];
+					moved[nMoved++] = i;
+					break;
+				}
+			}
+		}
+		while (nMoved < moved.length && random.nextDouble() >= REASSIGN_BETA);
+	}
+
+	/**
+	* @brief Splits a limited fleet among the depots, the vehicles of each class in proportion to the
+	* demand of the customers nearest to each depot (largest remainders get the vehicles left)
+	*/
+	private void splitFleet()
+	{
+		Fleet fleet = inputs.getFleet();
+		depotFleets = new Fleet[nDepots];
+		if (!fleet.isLimited())
+		{
+			Arrays.fill(depotFleets, fleet);
+			return;
+		}
+		Node[] nodes = inputs.getNodeList();
+		double[] demands = new double[nDepots];
+		double totalDemand = 0;
+		for (int i = nDepots; i < nodes.length; i++)
+		{
+			demands[bestAssignment[i]] += nodes[i].getDemand();
+			totalDemand += nodes[i].getDemand();
+		}
+		int[][] counts = new int[nDepots][fleet.getNClasses()];
+		double[] remainders = new double[nDepots];
+		for (int c = 0; c < fleet.getNClasses(); c++)
+		{
+			int left = fleet.getCount(c);
+			for (int d = 0; d < nDepots; d++)
+			{
+				double share = totalDemand > 0 ? fleet.getCount(c) * demands[d] / totalDemand : (d == 0 ? fleet.getCount(c) : 0);
+				counts[d][c] = (int) share;
+				remainders[d] = share - counts[d][c];
+				left -= counts[d][c];
+			}
+			for (; left > 0; left--)
+			{
+				int best = 0;
+				for (int d = 1; d < nDepots; d++)
+				{
+					if (remainders[d] > remainders[best])
+					{
+						best = d;
+					}
+				}
+				counts[best][c]++;
+				remainders[best] = -1;
+			}
+		}
+		for (int d = 0; d < nDepots; d++)
+		{
+			depotFleets[d] = new Fleet(fleet, counts[d]);
+		}
+	}
+
+	/**
+	* @brief Creates the inputs of a depot sub-problem
+	*
+	* @param d - int depot
+	*
+	* @param assignment - int[] depot of each customer
+	*
+	* @return Inputs - the depot as node 0 and its customers, with the fleet and costs of the instance
+	*/
+	private Inputs createDepotInputs(int d, int[] assignment)
+	{
+		Node[] nodes = inputs.getNodeList();
+		int n = 1;
+		for (int i = nDepots; i < nodes.length; i++)
+		{
+			if (assignment[i] == d)
+			{
+				n++;
+			}
+		}
+		Inputs depotInputs = new Inputs(n);
+		depotInputs.setNode(0, nodes[d]);
+		n = 1;
+		for (int i = nDepots; i < nodes.length; i++)
+		{
+			if (assignment[i] == d)
+			{
+				depotInputs.setNode(n++, nodes[i]);
+			}
+		}
+		for (int v = 0; v < inputs.getVehiclesList().size(); v++) // the vehicle types of the instance
+		{
+			depotInputs.setVehicle(inputs.getVehicle(v));
+		}
+		depotInputs.setFleet(depotFleets[d]); // the share of the depot
+		depotInputs.setCostMatrix(inputs.getCostMatrix());
+		return depotInputs;
+	}
+
+	/**
+	* @brief Gets the savings list of a depot sub-problem from the savings list of the depot
+	*
+	* @remarks The customers of the depot are candidates of it, so all their pairs are in the list, in order
+	*
+	* @param d - int depot
+	*
+	* @param assignment - int[] depot of each customer
+	*
+	* @param nEdges - int number of edges of the sub-problem
+	*
+	* @return Edge[] - sorted savings list
+	*/
+	private Edge[] filterSavingsList(int d, int[] assignment, int nEdges)
+	{
+		Node[] nodes = inputs.getNodeList();
+		int maxId = 0;
+		for (int i = 0; i < nodes.length; i++)
+		{
+			maxId = Math.max(maxId, nodes[i].getId());
+		}
+		boolean[] assigned = new boolean[maxId + 1];
+		for (int i = nDepots; i < nodes.length; i++)
+		{
+			assigned[nodes[i].getId()] = assignment[i] == d;
+		}
+		Edge[] list = new Edge[nEdges];
+		int n = 0;
+		for (Edge edge : depotSavingsLists[d])
+		{
+			if (assigned[edge.getOrigin().getId()] && assigned[edge.getEnd().getId()])
+			{
+				list[n++] = edge;
+			}
+		}
+		return list;
+	}
+
+	/**
+	* @brief Creates the sorted savings list of a depot over the pairs of its candidate customers
+	*
+	* @remarks With an asymmetric cost matrix both directions of every pair are edges, as in Inputs.fillEdgeList()
+	*
+	* @param d - int depot
+	*
+	* @param nCandidates - int number of candidate customers of the depot
+	*
+	* @return Edge[] - savings list sorted by ascending savings
+	*/
+	private Edge[] createSavingsList(int d, int nCandidates)
+	{
+		Node[] nodes = inputs.getNodeList();
+		Node depot = nodes[d];
+		CostMatrix costMatrix = inputs.getCostMatrix();
+		boolean directed = costMatrix != null && costMatrix.isAsymmetric();
+		Node[] customers = new Node[nCandidates];
+		int n = 0;
+		for (int i = nDepots; i < nodes.length; i++)
+		{
+			for (int c = 0; c < candidates[i].length; c++)
+			{
+				if (candidates[i][c] == d)
+				{
+					customers[n++] = nodes[i];
+				}
+			}
+		}
+		long nPairs = (long) n * (n - 1) / 2;
+		Edge[] list = new Edge[(int) (directed ? 2 * nPairs : nPairs)];
+		int k = 0;
+		for (int a = 0; a < n; a++)
+		{
+			for (int b = a + 1; b < n; b++)
+			{
+				list[k++] = createEdge(depot, customers[a], customers[b]);
+				if (directed)
+				{
+					list[k++] = createEdge(depot, customers[b], customers[a]);
+				}
+			}
+		}
+		Arrays.sort(list);
+		return list;
+	}
+
+	/**
+	* @brief Creates an edge of the savings list of a depot
+	*
+	* @param depot - Node depot
+	*
+	* @param origin - Node origin customer
+	*
+	* @param end - Node end customer
+	*
+	* @return Edge - edge with its costs and its savings with respect to the depot
+	*/
+	private Edge createEdge(Node depot, Node origin, Node end)
+	{
+		double costs = calcCosts(origin, end);
+		double savings = calcCosts(origin, depot) + calcCosts(depot, end) - costs;
+		return new Edge(origin, end, costs, savings);
+	}
+
+	/**
+	* @brief Calculates the costs of going from a node to another one
+	*
+	* @param origin - Node origin
+	*
+	* @param end - Node end
+	*
+	* @return double - costs taken from the cost matrix, or the euclidean distance
+	*/
+	private double calcCosts(Node origin, Node end)
+	{
+		CostMatrix costMatrix = inputs.getCostMatrix();
+		if (costMatrix != null)
+		{
+			return costMatrix.getCost(origin.getId(), end.getId());
+		}
+		return Math.sqrt((end.getX() - origin.getX()) * (end.getX() - origin.getX())
+				+ (end.getY() - origin.getY()) * (end.getY() - origin.getY()));
+	}
+}
@@ -0,0 +1,540 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+import java.util.Arrays;
+
+/**
+* @class MultiLaneCWS srgcwscs.MultiLaneCWS
+*
+* @brief This class runs several randomized CWS iterations (lanes) in a single pass over a sorted
+* savings list: every edge is read once and offered to all the lanes, each one with its own workspace,
+* its own beta and its own random decisions.
+*
+* @remarks RandCWS selects each edge at a geometric position among the edges not selected yet. A lane
+* does the same while the list is streamed: it draws the position and, if it falls beyond the edges it
+* has skipped so far (its deferred edges, a few dozens at most), it lets that many edges of the stream
+* go by into the deferred list and takes the next one. The selection is always geometric. A lane is
+* dropped as soon as it can not improve the incumbent, and the pass ends when no lane is left.
+* Interior nodes are recorded in one word per node with a bit per lane, read once for all the lanes:
+* late in the pass most edges are rejected there, without touching the workspace of any lane. They
+* still take their positions, as in RandCWS. Positions are drawn from a table of the cumulative
+* geometric distribution of each lane instead of a logarithm per draw.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class MultiLaneCWS implements CwsSolver
+{
+	/**
+     * @brief Initial capacity of the deferred lists
+     */
+	private static final int INITIAL_DEFERRED = 64;
+
+	/**
+     * @brief Maximum number of lanes, one bit of a long per lane
+     */
+	public static final int MAX_LANES = 64;
+
+	/**
+     * @brief Positions of the cumulative geometric distribution kept in a table
+     */
+	private static final int GEOMETRIC_TABLE_SIZE = 64;
+
+	/**
+     * @brief Inputs a representation of the different components of the problem, nodes, edges and vehicles
+     */
+	private Inputs inputs;
+
+	/**
+     * @brief Set of characteristics for the test to be run. InstanceName, Constraints, Maximiun Computing time,...
+     */
+	private Test aTest;
+
+	/**
+     * @brief Randomness instance, shared by all the lanes
+     */
+	private Randomness random;
+
+	/**
+     * @brief Number of lanes
+     */
+	private int nLanes;
+
+	/**
+     * @brief Workspace of each lane (created on first use)
+     */
+	private CwsWorkspace[] workspaces;
+
+	/**
+     * @brief Beta of each lane in the current pass
+     */
+	private double[] betas;
+
+	/**
+     * @brief Cumulative geometric distribution of each lane in the current pass
+     */
+	private double[][] cumulatives;
+
+	/**
+     * @brief Edges of the stream each lane lets go by before taking one
+     */
+	private int[] skips;
+
+	/**
+     * @brief Edges deferred by each lane from deferredHeads on, from the highest savings down (origin in the high half, end in the low half)
+     */
+	private long[][] deferredEdges;
+
+	/**
+     * @brief Savings of the edges deferred by each lane
+     */
+	private double[][] deferredSavings;
+
+	/**
+     * @brief Position of the first deferred edge of each lane
+     */
+	private int[] deferredHeads;
+
+	/**
+     * @brief Number of edges deferred by each lane
+     */
+	private int[] nDeferred;
+
+	/**
+     * @brief Lanes where each node is an interior node, one bit per lane
+     */
+	private long[] interiorLanes;
+
+	/**
+     * @brief Lane holding the best solution of the last pass
+     */
+	private int bestLane;
+
+	/**
+	* @brief MultiLaneCWS Constructor
+	*
+	* @param test - Test set of characteristics for the test to be run
+	*
+	* @param varInputs - Inputs representation of the different components of the problem, nodes, edges and vehicles
+	*
+	* @param lanes - int number of iterations run in each pass, up to MAX_LANES
+	*/
+	public MultiLaneCWS(Test test, Inputs varInputs, int lanes)
+	{
+		aTest = test;
+		inputs = varInputs;
+		nLanes = Math.max(1, Math.min(MAX_LANES, lanes));
+		random = new Randomness(aTest, inputs);
+		betas = new double[nLanes];
+		cumulatives = new double[nLanes][GEOMETRIC_TABLE_SIZE];
+		skips = new int[nLanes];
+		deferredEdges = new long[nLanes][INITIAL_DEFERRED];
+		deferredSavings = new double[nLanes][INITIAL_DEFERRED];
+		deferredHeads = new int[nLanes];
+		nDeferred = new int[nLanes];
+	}
+
+	/**
+	* @brief Gets the number of lanes
+	*
+	* @return int - number of iterations run in each pass
+	*/
+	public int getNLanes()
+	{
+		return nLanes;
+	}
+
+	/**
+	* @brief Runs a pass and builds the objects of its best solution
+	*
+	* @param effList - Edge[] savings list sorted by ascending savings
+	*
+	* @param useRandomSelection - boolean false for the classical CWS solution (a single lane)
+	*
+	* @return Solution - Set of nodes that resolves the VRP problem
+	*/
+	public Solution solve(Edge[] effList, boolean useRandomSelection)
+	{
+		solveInWorkspace(effList, useRandomSelection, Float.POSITIVE_INFINITY);
+		return getWorkspaceSolution();
+	}
+
+	/**
+	* @brief Runs a pass over a savings list held in an array of edges
+	*
+	* @param effList - Edge[] savings list sorted by ascending savings
+	*
+	* @param useRandomSelection - boolean false for the classical CWS solution (a single lane)
+	*
+	* @param incumbentCosts - float costs of the best solution so far (Float.POSITIVE_INFINITY for none)
+	*
+	* @return float - costs of the best solution of the pass, Float.POSITIVE_INFINITY if all lanes have been abandoned
+	*/
+	public float solveInWorkspace(final Edge[] effList, boolean useRandomSelection, float incumbentCosts)
+	{
+		getWorkspaces();
+		final CwsWorkspace ws = workspaces[0];
+		SavingsReader reader = new SavingsReader()
+		{
+			private int k = effList.length;
+
+			public boolean next()
+			{
+				return --k >= 0;
+			}
+
+			public int getOrigin()
+			{
+				return ws.indexOf(effList[k].getOrigin());
+			}
+
+			public int getEnd()
+			{
+				return ws.indexOf(effList[k].getEnd());
+			}
+
+			public double getSavings()
+			{
+				return effList[k].getSavings();
+			}
+
+			public void close()
+			{
+			}
+		};
+		return solveInWorkspace(reader, useRandomSelection, incumbentCosts);
+	}
+
+	/**
+	* @brief Runs a pass over a sorted savings list stored outside the heap
+	*
+	* @param store - SavingsStore sorted savings list
+	*
+	* @param useRandomSelection - boolean false for the classical CWS solution (a single lane)
+	*
+	* @param incumbentCosts - float costs of the best solution so far (Float.POSITIVE_INFINITY for none)
+	*
+	* @return float - costs of the best solution of the pass, Float.POSITIVE_INFINITY if all lanes have been abandoned
+	*/
+	public float solveInWorkspace(SavingsStore store, boolean useRandomSelection, float incumbentCosts)
+	{
+		return solveInWorkspace(store.reader(), useRandomSelection, incumbentCosts);
+	}
+
+	/**
+	* @brief Runs a pass over a savings list read from the highest savings down
+	*
+	* @param reader - SavingsReader sorted savings list, read from the highest savings down
+	*
+	* @param useRandomSelection - boolean false for the classical CWS solution (a single lane)
+	*
+	* @param incumbentCosts - float costs of the best solution so far (Float.POSITIVE_INFINITY for none)
+	*
+	* @return float - costs of the best solution of the pass, Float.POSITIVE_INFINITY if all lanes have been abandoned
+	*/
+	public float solveInWorkspace(SavingsReader reader, boolean useRandomSelection, float incumbentCosts)
+	{
+		getWorkspaces();
+		int lanes = useRandomSelection ? nLanes : 1;
+		long alive = lanes == MAX_LANES ? -1L : (1L << lanes) - 1;
+		boolean prune = incumbentCosts < Float.POSITIVE_INFINITY;
+		Arrays.fill(interiorLanes, 0);
+		for (int l = 0; l < lanes; l++)
+		{
+			workspaces[l].reset();
+			deferredHeads[l] = 0;
+			nDeferred[l] = 0;
+			if (useRandomSelection)
+			{
+				random.selectBeta();
+				betas[l] = random.getBeta();
+				fillCumulatives(l);
+			}
+			else
+			{
+				betas[l] = 1; // every edge is taken in order
+			}
+			skips[l] = draw(l);
+		}
+
+		// 1. Offer every edge of the stream to all the lanes
+		while (alive != 0 && reader.next())
+		{
+			int origin = reader.getOrigin();
+			int end = reader.getEnd();
+			double savings = reader.getSavings();
+			long blocked = interiorLanes[origin] | interiorLanes[end];
+			long active = alive;
+			while (active != 0)
+			{
+				int l = Long.numberOfTrailingZeros(active);
+				active &= active - 1;
+				if (prune)
+				{
+					double maxSavings = nDeferred[l] > 0 ? deferredSavings[l][deferredHeads[l]] : savings;
+					if (workspaces[l].calcLowerBound(maxSavings) > incumbentCosts)
+					{
+						alive &= ~(1L << l);
+						continue;
+					}
+				}
+				if (skips[l] > 0)
+				{
+					skips[l]--;
+					defer(l, origin, end, savings);
+					continue;
+				}
+				if ((blocked & (1L << l)) == 0)
+				{
+					merge(l, origin, end, savings);
+				}
+				selectDeferred(l);
+			}
+		}
+
+		// 2. Select the edges still deferred and keep the best lane
+		bestLane = -1;
+		double bestCosts = Double.POSITIVE_INFINITY;
+		for (int l = 0; l < lanes; l++)
+		{
+			if ((alive & (1L << l)) == 0)
+			{
+				continue;
+			}
+			while (nDeferred[l] > 0)
+			{
+				takeDeferred(l, draw(l) % nDeferred[l]);
+			}
+			double costs = workspaces[l].getCosts();
+			if (costs < bestCosts && (!prune || costs < incumbentCosts))
+			{
+				bestCosts = costs;
+				bestLane = l;
+			}
+		}
+		return bestLane < 0 ? Float.POSITIVE_INFINITY : (float) bestCosts;
+	}
+
+	/**
+	* @brief Takes deferred edges at random positions until a position falls beyond them
+	*
+	* @param l - int lane
+	*/
+	private void selectDeferred(int l)
+	{
+		while (true)
+		{
+			int pos = draw(l);
+			if (pos >= nDeferred[l])
+			{
+				skips[l] = pos - nDeferred[l];
+				return;
+			}
+			takeDeferred(l, pos);
+		}
+	}
+
+	/**
+	* @brief Removes an edge from the deferred list of a lane and merges it
+	*
+	* @remarks Positions are mostly small: the edges in front of the removed one are moved, and the head
+	* of the list moves one position forward
+	*
+	* @param l - int lane
+	*
+	* @param pos - int position in the deferred list
+	*/
+	private void takeDeferred(int l, int pos)
+	{
+		long[] edges = deferredEdges[l];
+		double[] savings = deferredSavings[l];
+		int first = deferredHeads[l];
+		int k = first + pos;
+		long edge = edges[k];
+		double edgeSavings = savings[k];
+		for (; k > first; k--)
+		{
+			edges[k] = edges[k - 1];
+			savings[k] = savings[k - 1];
+		}
+		deferredHeads[l] = first + 1;
+		nDeferred[l]--;
+		int origin = (int) (edge >>> 32);
+		int end = (int) edge;
+		if (((interiorLanes[origin] | interiorLanes[end]) & (1L << l)) == 0)
+		{
+			merge(l, origin, end, edgeSavings);
+		}
+	}
+
+	/**
+	* @brief Appends an edge to the deferred list of a lane
+	*
+	* @remarks When the end of the arrays is reached the list is moved back to their start, or they are
+	* doubled if it fills more than half of them
+	*/
+	private void defer(int l, int origin, int end, double savings)
+	{
+		int first = deferredHeads[l];
+		int n = nDeferred[l];
+		if (first + n == deferredEdges[l].length)
+		{
+			long[] edges = deferredEdges[l];
+			double[] edgeSavings = deferredSavings[l];
+			if (2 * n > edges.length)
+			{
+				edges = new long[2 * edges.length];
+				edgeSavings = new double[edges.length];
+			}
+			System.arraycopy(deferredEdges[l], first, edges, 0, n);
+			System.arraycopy(deferredSavings[l], first, edgeSavings, 0, n);
+			deferredEdges[l] = edges;
+			deferredSavings[l] = edgeSavings;
+			deferredHeads[l] = first = 0;
+		}
+		deferredEdges[l][first + n] = ((long) origin << 32) | (end & 0xFFFFFFFFL);
+		deferredSavings[l][first + n] = savings;
+		nDeferred[l] = n + 1;
+	}
+
+	/**
+	* @brief Merges the routes of an edge in a lane, the edge costs are only computed for feasible merges
+	*/
+	private void merge(int l, int origin, int end, double savings)
+	{
+		CwsWorkspace ws = workspaces[l];
+		if (ws.canMerge(origin, end, savings))
+		{
+			ws.merge(origin, end, ws.calcCosts(origin, end), savings);
+			if (ws.isInterior(origin))
+			{
+				interiorLanes[origin] |= 1L << l;
+			}
+			if (ws.isInterior(end))
+			{
+				interiorLanes[end] |= 1L << l;
+			}
+		}
+	}
+
+	/**
+	* @brief Draws the position of the next edge selected by a lane among the edges not selected yet
+	*
+	* @param l - int lane
+	*
+	* @return int - geometric position, 0 when the lane takes the edges in order
+	*/
+	private int draw(int l)
+	{
+		if (betas[l] >= 1)
+		{
+			return 0;
+		}
+		double[] cdf = cumulatives[l];
+		double u = random.nextDouble();
+		for (int k = 0; k < GEOMETRIC_TABLE_SIZE; k++)
+		{
+			if (u < cdf[k])
+			{
+				return k;
+			}
+		}
+		// The geometric distribution has no memory: beyond the table, start again from its end
+		return GEOMETRIC_TABLE_SIZE + random.nextGeometricPosition(Integer.MAX_VALUE, betas[l]);
+	}
+
+	/**
+	* @brief Fills the cumulative geometric distribution of a lane
+	*
+	* @param l - int lane
+	*/
+	private void fillCumulatives(int l)
+	{
+		double q = 1 - betas[l];
+		double tail = q;
+		for (int k = 0; k < GEOMETRIC_TABLE_SIZE; k++)
+		{
+			cumulatives[l][k] = 1 - tail; // probability of a position up to k
+			tail *= q;
+		}
+	}
+
+	/**
+	* @brief Restores the CWS initial (dummy) solution in the first lane, which becomes the best one
+	*
+	* @return float - costs of the dummy solution
+	*/
+	public float resetWorkspace()
+	{
+		getWorkspaces();
+		workspaces[0].reset();
+		Arrays.fill(interiorLanes, 0);
+		bestLane = 0;
+		return (float) workspaces[0].getCosts();
+	}
+
+	/**
+	* @brief Builds the Solution object of the best solution of the last pass
+	*
+	* @return Solution - Set of nodes that resolves the VRP problem
+	*/
+	public Solution getWorkspaceSolution()
+	{
+		return getBestWorkspace().toSolution();
+	}
+
+	/**
+	* @brief Encodes the best solution of the last pass as a giant tour
+	*
+	* @return CompactSolution - costs, customers route after route and route starts
+	*/
+	public CompactSolution getWorkspaceEncoding()
+	{
+		return getBestWorkspace().encode();
+	}
+
+	/**
+	* @brief Gets the workspace of the best lane of the last pass (the first one if all have been abandoned)
+	*
+	* @return CwsWorkspace - workspace of the best lane
+	*/
+	private CwsWorkspace getBestWorkspace()
+	{
+		getWorkspaces();
+		return workspaces[bestLane < 0 ? 0 : bestLane];
+	}
+
+	/**
+	* @brief Creates the workspaces of the lanes on first use
+	*/
+	private void getWorkspaces()
+	{
+		if (workspaces == null)
+		{
+			workspaces = new CwsWorkspace[nLanes];
+			interiorLanes = new long[inputs.getNodeList().length];
+			for (int l = 0; l < nLanes; l++)
+			{
+				workspaces[l] = new CwsWorkspace(inputs, aTest);
+			}
+		}
+	}
+}
@@ -54,6 +54,21 @@ public class Node
      */
     private int demand;   
     
+    /**
+     * @brief Earliest time the service of the node can start
+     */
+    private double readyTime;
+    
+    /**
+     * @brief Latest time the service of the node can start (Double.POSITIVE_INFINITY for none)
+     */
+    private double dueTime;
+    
+    /**
+     * @brief Duration of the service of the node
+     */
+    private double serviceTime;
+    
     /**
      * @brief id of route containing the node
      */
@@ -87,11 +102,70 @@ public class Node
         x = nodeX;
         y = nodeY;
         demand = nodeDemand;
+        readyTime = 0; // no time window
+        dueTime = Double.POSITIVE_INFINITY;
+        serviceTime = 0;
         inRoute = -1; // node is not assigned to any route yet
         isInterior = false; // initially, all nodes are exterior ones
         route = null; // initially, there is no route associated to the node
     }
    
+    /**
+  	* @brief Updates the time window of the node
+  	*
+  	* @param ready - double earliest time the service can start
+  	* 
+  	* @param due - double latest time the service can start
+  	* 
+  	* @param service - double duration of the service
+  	*/
+    public void setTimeWindow(double ready, double due, double service) 
+    {
+        readyTime = ready;
+        dueTime = due;
+        serviceTime = service;
+    }
+    
+    /**
+  	* @brief Checks whether the node has a time window or a service time
+  	*
+  	* @return boolean - false for the default values, no constraint
+  	*/
+    public boolean hasTimeWindow() 
+    {
+        return readyTime > 0 || dueTime != Double.POSITIVE_INFINITY || serviceTime > 0;
+    }
+    
+    /**
+  	* @brief Gets the earliest time the service of the node can start
+  	*
+  	* @return double - ready time
+  	*/
+    public double getReadyTime() 
+    {
+        return readyTime;
+    }
+    
+    /**
+  	* @brief Gets the latest time the service of the node can start
+  	*
+  	* @return double - due time, Double.POSITIVE_INFINITY for none
+  	*/
+    public double getDueTime() 
+    {
+        return dueTime;
+    }
+    
+    /**
+  	* @brief Gets the duration of the service of the node
+  	*
+  	* @return double - service time
+  	*/
+    public double getServiceTime() 
+    {
+        return serviceTime;
+    }
+    
     /**
   	* @brief Updates node identification
   	*
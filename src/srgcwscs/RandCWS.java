@@ -35,7 +35,7 @@ import java.util.Collections;
 *
 * @copyright GNU Public License, version 2.
 **/
-public class RandCWS
+public class RandCWS implements CwsSolver
 {
 	/**
      * @brief Inputs a representation of the different components of the problem, nodes, edges and vehicles
@@ -47,10 +47,25 @@ public class RandCWS
      */
     private Test aTest;
     
+    /**
+     * @brief Number of candidate edges a streamed savings list is selected from (a power of 2)
+     */
+    private static final int SELECTION_WINDOW = 1024;
+    
+    /**
+     * @brief Maximum share of the merges of the base run reused by a partial restart
+     */
+    private static final double MAX_PREFIX_SHARE = 0.5;
+    
+    /**
+     * @brief Iterations without improvement after which the reused prefix is halved
+     */
+    private static final int PREFIX_STAGNATION = 100;
+    
     /**
      * @brief Number of edges
      */
-    private int nEdges;
+    private long nEdges;
     
     /**
      * @brief Randomness instance
@@ -63,85 +78,729 @@ public class RandCWS
     private int[] positions; // array of randomly selected positions 
     
     /**
-     * @brief Array of nodes
-     */
-    private Node[] nodes;
+     * @brief Array of nodes
+     */
+    private Node[] nodes;
+    
+    /**
+     * @brief Capacity classes of the fleet and vehicles available in the solution built by the object path
+     */
+    private Fleet fleet;
+    
+    /**
+     * @brief true if any node has a time window or a service time
+     */
+    private boolean timeWindows;
+    
+    /**
+     * @brief Reusable state for the iterations run in workspace mode (created on first use)
+     */
+    private CwsWorkspace workspace;
+    
+    /**
+     * @brief Highest edge position left before each position of the positions array is selected
+     */
+    private int[] maxPositions;
+    
+    /**
+     * @brief Last savings list checked by checkSavingsOrder()
+     */
+    private Edge[] checkedList;
+    
+    /**
+     * @brief true if checkedList is sorted by ascending savings
+     */
+    private boolean listSortedBySavings;
+    
+    /**
+     * @brief Highest savings of checkedList
+     */
+    private double listMaxSavings;
+    
+    /**
+     * @brief Origins of the edges in the selection window of a streamed savings list
+     */
+    private int[] windowOrigins;
+    
+    /**
+     * @brief Ends of the edges in the selection window of a streamed savings list
+     */
+    private int[] windowEnds;
+    
+    /**
+     * @brief Savings of the edges in the selection window of a streamed savings list
+     */
+    private double[] windowSavings;
+    
+    /**
+     * @brief true to start the randomized iterations from a prefix of the classical CWS solution
+     */
+    private boolean partialRestart;
+    
+    /**
+     * @brief Savings list of the last classical CWS solution built in the workspace (the base run)
+     */
+    private Edge[] baseList;
+    
+    /**
+     * @brief Positions in baseList of the edges merged by the base run, in merging order
+     */
+    private int[] baseMerges;
+    
+    /**
+     * @brief Number of merges of the base run
+     */
+    private int nBaseMerges;
+    
+    /**
+     * @brief Number of merges of the base run reused by the randomized iterations
+     */
+    private int prefixMerges;
+    
+    /**
+     * @brief Number of merges of the base run saved in the checkpoint of the workspace (-1 for none)
+     */
+    private int checkpointMerges;
+    
+    /**
+     * @brief Randomized iterations since the last improvement
+     */
+    private int nStagnated;
+    
+    /**
+	* @brief RandCWS Constructor
+	*
+	* @param test - Test set of characteristics for the test to be run. InstanceName, Constraints, Maximiun Computing time,...
+	* 
+	* @param varInputs - Inputs a representation of the different components of the problem, nodes, edges and vehicles
+	* 
+	* @param nodeDemand - float value for the associated node's demand
+	* 
+	*/
+    public RandCWS(Test test, Inputs varInputs)
+    {
+        inputs = varInputs;
+        aTest = test;
+        fleet = new Fleet(inputs.getFleet());
+
+        nEdges = inputs.getNEdges(); // The depot is not considered
+        random = new Randomness(aTest, inputs);
+        positions = null; // allocated on first use, not needed for savings stores
+        nodes = inputs.getNodeList();  
+        for (int i = 0; i < nodes.length; i++)
+        {
+        	timeWindows |= nodes[i].hasTimeWindow();
+        }
+    }
+
+    /**
+	* @brief Core method to solve the VRP according to a given characteristics, with a set of elements and returning a collection of routes
+	*
+	* @param effList - Edge[] array of edges connecting nodes
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @return Solution - Set of nodes that resolves the VRP problem
+	* 
+	*/
+    public Solution solve(Edge[] effList, boolean useRandomSelection)
+    {  
+        // Depot is always node 0 with demand = 0
+        Node depot = nodes[0];
+
+        // 1. CONSTRUCT THE CWS INITIAL (DUMMY) SOLUTION
+        Solution currentSol = getDummySolution(nodes);
+
+        // 2. PERFORM THE EDGE-SELECTION & ROUTING-MERGING ITERATIVE PROCESS
+        // This process is a randomization of the corresponding CWS process
+        // Calculate the array of randomly selected positions of edges in effList
+        calcPositions(useRandomSelection);
+        
+        this.edgeSelectionRoutingMerging(depot,positions, effList,aTest, currentSol);
+
+        /***************************************************************************
+         * 4. SET THE SOLUTION COSTS AND RETURN IT
+         ***************************************************************************/
+        // 4.1. Reset the solution costs
+        currentSol.setCosts(0);
+
+        // 4.2. Calculate solutions costs
+        for (int i = 0; i < currentSol.getRoutes().size(); i++) {
+            currentSol.addCosts(currentSol.getRoutes().get(i));
+        }
+
+        // 4.3. Give the routes vehicles the fleet has, the single customers only held one provisionally
+        fleet.assignVehicles(currentSol);
+
+        return currentSol;
+    }
+    
+    /**
+	* @brief Solves the VRP reading the sorted savings list from mapped matrices instead of an array of edges
+	*
+	* @remarks Used for huge instances. The edges are streamed from the mapped savings list, so no array
+	* of positions is built on the heap, see solve(SavingsReader reader, boolean useRandomSelection)
+	*
+	* @param matrices - MappedMatrices distance matrix and sorted savings list mapped in memory
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @return Solution - Set of nodes that resolves the VRP problem
+	* 
+	* @see Solution solve(Edge[] effList, boolean useRandomSelection)
+	*/
+    public Solution solve(MappedMatrices matrices, boolean useRandomSelection)
+    {
+        return solve(matrices.getSavingsStore(), useRandomSelection);
+    }
+    
+    /**
+	* @brief Solves the VRP streaming the edges of a sorted savings list stored outside the heap
+	*
+	* @param store - SavingsStore sorted savings list
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @return Solution - Set of nodes that resolves the VRP problem
+	* 
+	* @see Solution solve(SavingsReader reader, boolean useRandomSelection)
+	*/
+    public Solution solve(SavingsStore store, boolean useRandomSelection)
+    {
+        return solve(store.reader(), useRandomSelection);
+    }
+    
+    /**
+	* @brief Solves the VRP streaming the edges of a sorted savings list from a sequential reader
+	*
+	* @remarks No array of positions is built. The edges are read from the highest savings down and
+	* the next one is chosen at random among the first SELECTION_WINDOW edges not yet used. With the
+	* geometric distribution positions beyond the window are practically never selected, so this is
+	* the same biased randomization with memory independent of the list size.
+	*
+	* @param reader - SavingsReader sorted savings list, read from the highest savings down
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @return Solution - Set of nodes that resolves the VRP problem
+	* 
+	* @see Solution solve(Edge[] effList, boolean useRandomSelection)
+	*/
+    public Solution solve(SavingsReader reader, boolean useRandomSelection)
+    {
+        // 1. CONSTRUCT THE CWS INITIAL (DUMMY) SOLUTION
+        Solution currentSol = getDummySolution(nodes);
+
+        // 2. PERFORM THE EDGE-SELECTION & ROUTING-MERGING ITERATIVE PROCESS
+        if (useRandomSelection)
+        {
+        	random.selectBeta();
+        }
+        this.edgeSelectionRoutingMerging(reader, useRandomSelection, aTest, currentSol);
+
+        // 3. SET THE SOLUTION COSTS AND VEHICLES AND RETURN IT
+        currentSol.setCosts(0);
+        for (int i = 0; i < currentSol.getRoutes().size(); i++) {
+            currentSol.addCosts(currentSol.getRoutes().get(i));
+        }
+        fleet.assignVehicles(currentSol);
+
+        return currentSol;
+    }
+    
+    /**
+	* @brief Solves the VRP in the workspace of the solver, without creating any object
+	*
+	* @remarks The solution is kept in the workspace until the next call, getWorkspaceSolution()
+	* builds its Solution object when needed (e.g. only for improving solutions)
+	*
+	* @param effList - Edge[] array of edges connecting nodes
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @return float - costs of the solution
+	* 
+	* @see Solution solve(Edge[] effList, boolean useRandomSelection)
+	*/
+    public float solveInWorkspace(Edge[] effList, boolean useRandomSelection)
+    {
+        return solveInWorkspace(effList, useRandomSelection, Float.POSITIVE_INFINITY);
+    }
+    
+    /**
+	* @brief Solves the VRP in the workspace of the solver, abandoning the iteration as soon as it can not improve a given solution
+	*
+	* @remarks Before each edge is selected, the lower bound of CwsWorkspace.calcLowerBound() is compared
+	* with the incumbent costs. The highest savings not selected yet is the one of the highest position
+	* left when the list is sorted by savings, or the highest savings of the list otherwise (e.g. lists
+	* sorted by generalized savings).
+	*
+	* @param effList - Edge[] array of edges connecting nodes
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @param incumbentCosts - float costs of the best solution so far
+	* 
+	* @return float - costs of the solution, Float.POSITIVE_INFINITY if the iteration has been abandoned
+	* 
+	* @see float solveInWorkspace(Edge[] effList, boolean useRandomSelection)
+	*/
+    public float solveInWorkspace(Edge[] effList, boolean useRandomSelection, float incumbentCosts)
+    {
+        return solveInWorkspace(effList, useRandomSelection, incumbentCosts, incumbentCosts);
+    }
+    
+    /**
+	* @brief Solves the VRP in the workspace of the solver, abandoning the iteration as soon as it can not get below a given bound
+	*
+	* @remarks The bound may be looser than the incumbent costs, e.g. when the solutions are improved
+	* afterwards by a local search. With partial restarts, only the iterations below the incumbent costs
+	* count as improvements for the prefix of the base run.
+	*
+	* @param effList - Edge[] array of edges connecting nodes
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @param pruningCosts - float costs above which the iteration is abandoned
+	* 
+	* @param incumbentCosts - float costs of the best solution so far
+	* 
+	* @return float - costs of the solution, Float.POSITIVE_INFINITY if the iteration has been abandoned
+	* 
+	* @see float solveInWorkspace(Edge[] effList, boolean useRandomSelection, float incumbentCosts)
+	*/
+    public float solveInWorkspace(Edge[] effList, boolean useRandomSelection, float pruningCosts, float incumbentCosts)
+    {
+        // 1. Start from the dummy solution, or from a prefix of the base run
+        CwsWorkspace ws;
+        int n = (int) nEdges;
+        boolean restart = useRandomSelection && partialRestart && effList == baseList && prefixMerges > 0;
+        if (restart)
+        {
+        	ws = restoreCheckpoint();
+        	n = baseMerges[prefixMerges - 1]; // only the edges below the last merge reused are left
+        }
+        else
+        {
+        	ws = resetWorkspaceState();
+        	if (!useRandomSelection)
+        	{
+        		startBaseRun(effList);
+        	}
+        }
+        
+        // 2. Merge the edges left
+        calcPositions(useRandomSelection, n);
+        boolean prune = pruningCosts < Float.POSITIVE_INFINITY;
+        boolean sorted = false;
+        if (prune)
+        {
+        	sorted = checkSavingsOrder(effList);
+        	calcMaxPositions(n);
+        }
+        for (int i = n - 1; i > 0; i--)
+        {
+        	if (prune)
+        	{
+        		double maxSavings = sorted ? effList[maxPositions[i]].getSavings() : listMaxSavings;
+        		if (ws.calcLowerBound(maxSavings) > pruningCosts)
+        		{
+        			if (useRandomSelection)
+        			{
+        				adaptPrefix(effList, false);
+        			}
+        			return Float.POSITIVE_INFINITY;
+        		}
+        	}
+        	Edge ijEdge = effList[positions[i]];
+        	if (ws.merge(ws.indexOf(ijEdge.getOrigin()), ws.indexOf(ijEdge.getEnd()), ijEdge.getCosts(), ijEdge.getSavings())
+        			&& !useRandomSelection)
+        	{
+        		baseMerges[nBaseMerges++] = positions[i];
+        	}
+        }
+        if (!useRandomSelection)
+        {
+        	prefixMerges = (int) (MAX_PREFIX_SHARE * nBaseMerges);
+        }
+        else
+        {
+        	adaptPrefix(effList, ws.getCosts() < incumbentCosts);
+        }
+        return (float) ws.getCosts();
+    }
+    
+    /**
+	* @brief Makes the randomized iterations start from a prefix of the classical CWS solution
+	*
+	* @remarks The first merges of the classical CWS, from the top of the savings list, are made by most
+	* randomized iterations too. With partial restarts the classical solution built by solveInWorkspace()
+	* is the base run: a checkpoint of the workspace is saved after its first p merges, and the randomized
+	* iterations on the same list restore it and only randomize the edges below the last merge reused. The
+	* cost of an iteration falls with the part of the list skipped. p starts at MAX_PREFIX_SHARE of the
+	* merges. Every new best solution sets it to the number of first merges of the base run it keeps (up
+	* to that share), and it is halved after PREFIX_STAGNATION iterations without improvement.
+	*
+	* @param restart - boolean true to enable partial restarts
+	*/
+    public void setPartialRestart(boolean restart)
+    {
+        partialRestart = restart;
+    }
+    
+    /**
+	* @brief Starts recording the merges of a new base run
+	*
+	* @param effList - Edge[] savings list of the base run
+	*/
+    private void startBaseRun(Edge[] effList)
+    {
+        baseList = effList;
+        if (baseMerges == null)
+        {
+        	baseMerges = new int[nodes.length];
+        }
+        nBaseMerges = 0;
+        checkpointMerges = -1;
+        nStagnated = 0;
+    }
+    
+    /**
+	* @brief Restores the checkpoint of the base run after its first prefixMerges merges, saving it again if p has changed
+	*
+	* @return CwsWorkspace - workspace of the solver
+	*/
+    private CwsWorkspace restoreCheckpoint()
+    {
+        CwsWorkspace ws = getWorkspace();
+        if (checkpointMerges == prefixMerges)
+        {
+        	ws.restoreCheckpoint();
+        	return ws;
+        }
+        ws.reset();
+        for (int m = 0; m < prefixMerges; m++)
+        {
+        	Edge ijEdge = baseList[baseMerges[m]];
+        	ws.merge(ws.indexOf(ijEdge.getOrigin()), ws.indexOf(ijEdge.getEnd()), ijEdge.getCosts(), ijEdge.getSavings());
+        }
+        ws.saveCheckpoint();
+        checkpointMerges = prefixMerges;
+        return ws;
+    }
+    
+    /**
+	* @brief Adapts the number of merges of the base run reused after a randomized iteration
+	*
+	* @param effList - Edge[] savings list of the iteration
+	* 
+	* @param improved - boolean true if the iteration has improved the incumbent, its solution is in the workspace
+	*/
+    private void adaptPrefix(Edge[] effList, boolean improved)
+    {
+        if (!partialRestart || effList != baseList)
+        {
+        	return;
+        }
+        if (improved)
+        {
+        	// Reuse the first merges of the base run kept by the new best solution
+        	int maxPrefix = (int) (MAX_PREFIX_SHARE * nBaseMerges);
+        	int kept = 0;
+        	while (kept < maxPrefix)
+        	{
+        		Edge ijEdge = baseList[baseMerges[kept]];
+        		if (!workspace.isLinked(workspace.indexOf(ijEdge.getOrigin()), workspace.indexOf(ijEdge.getEnd())))
+        		{
+        			break;
+        		}
+        		kept++;
+        	}
+        	prefixMerges = kept;
+        	nStagnated = 0;
+        }
+        else if (++nStagnated >= PREFIX_STAGNATION)
+        {
+        	prefixMerges /= 2;
+        	nStagnated = 0;
+        }
+    }
+    
+    /**
+	* @brief Solves the VRP in the workspace of the solver reading the sorted savings list from mapped matrices
+	*
+	* @param matrices - MappedMatrices distance matrix and sorted savings list mapped in memory
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @return float - costs of the solution
+	* 
+	* @see float solveInWorkspace(Edge[] effList, boolean useRandomSelection)
+	*/
+    public float solveInWorkspace(MappedMatrices matrices, boolean useRandomSelection)
+    {
+        return solveInWorkspace(matrices, useRandomSelection, Float.POSITIVE_INFINITY);
+    }
+    
+    /**
+	* @brief Solves the VRP in the workspace of the solver reading the sorted savings list from mapped matrices,
+	* abandoning the iteration as soon as it can not improve a given solution
+	*
+	* @remarks The edges are streamed from the mapped savings list, so no array of positions is built on the heap
+	*
+	* @param matrices - MappedMatrices distance matrix and sorted savings list mapped in memory
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @param incumbentCosts - float costs of the best solution so far
+	* 
+	* @return float - costs of the solution, Float.POSITIVE_INFINITY if the iteration has been abandoned
+	* 
+	* @see float solveInWorkspace(SavingsReader reader, boolean useRandomSelection, float incumbentCosts)
+	*/
+    public float solveInWorkspace(MappedMatrices matrices, boolean useRandomSelection, float incumbentCosts)
+    {
+        return solveInWorkspace(matrices.getSavingsStore(), useRandomSelection, incumbentCosts);
+    }
+    
+    /**
+	* @brief Solves the VRP in the workspace of the solver streaming a sorted savings list stored outside the heap
+	*
+	* @param store - SavingsStore sorted savings list
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @return float - costs of the solution
+	* 
+	* @see float solveInWorkspace(SavingsReader reader, boolean useRandomSelection)
+	*/
+    public float solveInWorkspace(SavingsStore store, boolean useRandomSelection)
+    {
+        return solveInWorkspace(store.reader(), useRandomSelection, Float.POSITIVE_INFINITY);
+    }
+    
+    /**
+	* @brief Solves the VRP in the workspace of the solver streaming a sorted savings list stored outside the heap,
+	* abandoning the iteration as soon as it can not improve a given solution
+	*
+	* @param store - SavingsStore sorted savings list
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @param incumbentCosts - float costs of the best solution so far
+	* 
+	* @return float - costs of the solution, Float.POSITIVE_INFINITY if the iteration has been abandoned
+	* 
+	* @see float solveInWorkspace(SavingsReader reader, boolean useRandomSelection, float incumbentCosts)
+	*/
+    public float solveInWorkspace(SavingsStore store, boolean useRandomSelection, float incumbentCosts)
+    {
+        return solveInWorkspace(store.reader(), useRandomSelection, incumbentCosts);
+    }
+    
+    /**
+	* @brief Solves the VRP in the workspace of the solver streaming a sorted savings list from a sequential reader
+	*
+	* @param reader - SavingsReader sorted savings list, read from the highest savings down
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @return float - costs of the solution
+	* 
+	* @see Solution solve(SavingsReader reader, boolean useRandomSelection)
+	*/
+    public float solveInWorkspace(SavingsReader reader, boolean useRandomSelection)
+    {
+        return solveInWorkspace(reader, useRandomSelection, Float.POSITIVE_INFINITY);
+    }
+    
+    /**
+	* @brief Solves the VRP in the workspace of the solver streaming a sorted savings list from a sequential reader,
+	* abandoning the iteration as soon as it can not improve a given solution
+	*
+	* @remarks The highest savings not selected yet is the first one of the selection window
+	*
+	* @param reader - SavingsReader sorted savings list, read from the highest savings down
+	* 
+	* @param useRandomSelection - use Random selection for solving VRP
+	* 
+	* @param incumbentCosts - float costs of the best solution so far
+	* 
+	* @return float - costs of the solution, Float.POSITIVE_INFINITY if the iteration has been abandoned
+	* 
+	* @see float solveInWorkspace(Edge[] effList, boolean useRandomSelection, float incumbentCosts)
+	*/
+    public float solveInWorkspace(SavingsReader reader, boolean useRandomSelection, float incumbentCosts)
+    {
+        resetWorkspaceState();
+        if (useRandomSelection)
+        {
+        	random.selectBeta();
+        }
+        if (!streamEdges(reader, useRandomSelection, aTest, null, incumbentCosts))
+        {
+        	return Float.POSITIVE_INFINITY;
+        }
+        return (float) workspace.getCosts();
+    }
+    
+    /**
+	* @brief Calculates, for every position i of the positions array, the highest edge position among positions[1..i]
+	*
+	* @remarks positions[0] is never selected, so maxPositions[i] is the highest edge position left
+	* before positions[i] is selected
+	*
+	* @param n - int number of positions in use
+	*/
+    private void calcMaxPositions(int n)
+    {
+        if (maxPositions == null || maxPositions.length != positions.length)
+        {
+        	maxPositions = new int[positions.length];
+        }
+        int max = 0;
+        for (int i = 1; i < n; i++)
+        {
+        	max = Math.max(max, positions[i]);
+        	maxPositions[i] = max;
+        }
+    }
+    
+    /**
+	* @brief Checks whether a savings list is sorted by ascending savings and gets its highest savings
+	*
+	* @remarks The result is kept for the last list checked, so it is only computed again when the
+	* list changes
+	*
+	* @param effList - Edge[] savings list
+	*
+	* @return boolean - true if the list is sorted by savings
+	*/
+    private boolean checkSavingsOrder(Edge[] effList)
+    {
+        if (effList != checkedList)
+        {
+        	checkedList = effList;
+        	listSortedBySavings = true;
+        	listMaxSavings = effList.length > 0 ? effList[0].getSavings() : 0;
+        	for (int k = 1; k < effList.length; k++)
+        	{
+        		double kSavings = effList[k].getSavings();
+        		if (kSavings < effList[k - 1].getSavings())
+        		{
+        			listSortedBySavings = false;
+        		}
+        		listMaxSavings = Math.max(listMaxSavings, kSavings);
+        	}
+        }
+        return listSortedBySavings;
+    }
+    
+    /**
+	* @brief Restores the CWS initial (dummy) solution in the workspace of the solver
+	*
+	* @return float - costs of the dummy solution
+	*/
+    public float resetWorkspace()
+    {
+        return (float) resetWorkspaceState().getCosts();
+    }
+    
+    /**
+	* @brief Builds the Solution object of the last solution found in the workspace
+	*
+	* @return Solution - Set of nodes that resolves the VRP problem
+	* 
+	* @see float solveInWorkspace(Edge[] effList, boolean useRandomSelection)
+	*/
+    public Solution getWorkspaceSolution()
+    {
+        if (workspace == null)
+        {
+        	resetWorkspaceState();
+        }
+        return workspace.toSolution();
+    }
+    
+    /**
+	* @brief Encodes the last solution found in the workspace as a giant tour
+	*
+	* @return CompactSolution - costs, customers route after route and route starts
+	* 
+	* @see Solution getWorkspaceSolution()
+	*/
+    public CompactSolution getWorkspaceEncoding()
+    {
+        if (workspace == null)
+        {
+        	resetWorkspaceState();
+        }
+        return workspace.encode();
+    }
+    
+    /**
+	* @brief Gets the workspace of the solver, creating it on first use
+	*
+	* @return CwsWorkspace - workspace of the solver
+	*/
+    private CwsWorkspace getWorkspace()
+    {
+        if (workspace == null)
+        {
+        	workspace = new CwsWorkspace(inputs, aTest);
+        }
+        return workspace;
+    }
     
     /**
-     * @brief Vehicle Capacity
-     */
-    private int vCap;
+	* @brief Creates the workspace on first use and restores its dummy solution
+	*
+	* @return CwsWorkspace - workspace of the solver
+	*/
+    private CwsWorkspace resetWorkspaceState()
+    {
+        if (workspace == null)
+        {
+        	return getWorkspace(); // created with the dummy solution
+        }
+        workspace.reset();
+        return workspace;
+    }
     
     /**
-	* @brief RandCWS Constructor
+	* @brief Calculates the order in which the edges of the savings list are selected
 	*
-	* @param test - Test set of characteristics for the test to be run. InstanceName, Constraints, Maximiun Computing time,...
-	* 
-	* @param varInputs - Inputs a representation of the different components of the problem, nodes, edges and vehicles
-	* 
-	* @param nodeDemand - float value for the associated node's demand
-	* 
+	* @param useRandomSelection - false for the classical Clarke & Wright order
 	*/
-    public RandCWS(Test test, Inputs varInputs)
+    private void calcPositions(boolean useRandomSelection)
     {
-        inputs = varInputs;
-        aTest = test;
-        int n = inputs.getNodeList().length;
-        vCap = inputs.getVehicle(0).getVcap();
-
-        nEdges = (n - 1) * (n - 2) / 2; // The depot is not considered
-        random = new Randomness(aTest, inputs);
-        positions = new int[nEdges];
-        nodes = inputs.getNodeList();  
+        calcPositions(useRandomSelection, (int) nEdges);
     }
-
+    
     /**
-	* @brief Core method to solve the VRP according to a given characteristics, with a set of elements and returning a collection of routes
+	* @brief Calculates the order in which the first n edges of the savings list are selected
 	*
-	* @param effList - Edge[] array of edges connecting nodes
-	* 
-	* @param useRandomSelection - use Random selection for solving VRP
-	* 
-	* @return Solution - Set of nodes that resolves the VRP problem
+	* @param useRandomSelection - false for the classical Clarke & Wright order
 	* 
+	* @param n - int number of edges, from the bottom of the list
 	*/
-    public Solution solve(Edge[] effList, boolean useRandomSelection)
-    {  
-        // Depot is always node 0 with (x,y) = (0,0) and demand = 0
-        Node depot = nodes[0];
-
-        // 1. CONSTRUCT THE CWS INITIAL (DUMMY) SOLUTION
-        Solution currentSol = getDummySolution(nodes);
-
-        // 2. PERFORM THE EDGE-SELECTION & ROUTING-MERGING ITERATIVE PROCESS
-        // This process is a randomization of the corresponding CWS process
-        // Calculate the array of randomly selected positions of edges in effList
+    private void calcPositions(boolean useRandomSelection, int n)
+    {
+        if (positions == null || positions.length != nEdges)
+        {
+        	positions = new int[(int) nEdges];
+        }
         if (useRandomSelection == false) // classical Clarke & Wright solution
         {
-            for (int i = 0; i < nEdges; i++)
+            for (int i = 0; i < n; i++)
             {
             	positions[i] = i; 
             }
         }
         else
         {
-        	positions = random.calcPositionsArrayFast();// Randomized Clarke & Wright solution
-        }
-        
-        this.edgeSelectionRoutingMerging(depot,positions, effList,aTest, currentSol);
-
-        /***************************************************************************
-         * 4. SET THE SOLUTION COSTS AND RETURN IT
-         ***************************************************************************/
-        // 4.1. Reset the solution costs
-        currentSol.setCosts(0);
-
-        // 4.2. Calculate solutions costs
-        for (int i = 0; i < currentSol.getRoutes().size(); i++) {
-            currentSol.addCosts(currentSol.getRoutes().get(i));
+        	random.calcPositionsArrayFast(positions, n);// Randomized Clarke & Wright solution
         }
-
-        return currentSol;
     }
     
     /**
@@ -156,15 +815,33 @@ public class RandCWS
     public Solution getDummySolution(Node [] nodeSet) 
     {
     	Solution dummySolution = new Solution();
+    	fleet.reset();
 
     	Node depot = nodeSet[0];
+    	CostMatrix costMatrix = inputs.getCostMatrix();
+    	CwsWorkspace ws = nodeSet == nodes ? getWorkspace() : null; // depot costs precomputed for the instance nodes
     	
     	for( int i = 1; i < nodeSet.length; i++ ) // don't consider i = 0 (depot)
     	{
     		// 1.1. Create diEdge and idEdge (and set corresponding costs)
     		Node iNode = nodeSet[i];
-    		Edge diEdge = new Edge(depot, iNode);
-    		Edge idEdge = new Edge(iNode, depot);
+    		Edge diEdge;
+    		Edge idEdge;
+    		if (ws != null)
+    		{
+    			diEdge = new Edge(depot, iNode, ws.getDepotCosts(i), 0);
+    			idEdge = new Edge(iNode, depot, ws.getReturnCosts(i), 0);
+    		}
+    		else if (costMatrix == null)
+    		{
+    			diEdge = new Edge(depot, iNode);
+    			idEdge = new Edge(iNode, depot);
+    		}
+    		else
+    		{
+    			diEdge = new Edge(depot, iNode, costMatrix.getCost(depot.getId(), iNode.getId()), 0);
+    			idEdge = new Edge(iNode, depot, costMatrix.getCost(iNode.getId(), depot.getId()), 0);
+    		}
 
     		// 1.2. Create didRoute (and set corresponding total costs and demand)
     		Route didRoute = new Route();
@@ -178,8 +855,21 @@ public class RandCWS
     		iNode.setInRoute(didRoute.getId()); // save route to which node belongs
     		iNode.setIsInterior(false); // node is directly connected to depot
     		iNode.setRoute(didRoute);
+    		if (timeWindows)
+    		{
+    			RouteTiming single = new RouteTiming(iNode);
+    			didRoute.setTiming(iNode, single, single);
+    		}
     		
-    		// 1.4. Add didRoute to current solution
+    		// 1.4. Hold a vehicle of the smallest class that can carry iNode, even if the fleet has none left
+    		int vehicle = fleet.classOf(iNode.getDemand());
+    		if (vehicle >= 0)
+    		{
+    			fleet.take(vehicle);
+    			didRoute.setVehicle(fleet.getVehicle(vehicle));
+    		}
+    		
+    		// 1.5. Add didRoute to current solution
     		dummySolution.addRoute(didRoute);
     		dummySolution.addCosts(didRoute);
     		
@@ -211,72 +901,386 @@ public class RandCWS
     		// 3.1. Select the next edge from the list (either at random or not)
     		Edge ijEdge = effList[positions[i]];
 
-    		// 3.2. Determine the nodes i < j that define the edge
-    		Node iNode = ijEdge.getOrigin();
-    		Node jNode = ijEdge.getEnd();
+    		mergeIfFeasible(ijEdge, test, aSolution);
+    	}
+    }
+    
+    /**
+	* @brief Performs the edge selection and the route merging streaming the edges from a reader
+	*
+	* @remarks The window is a ring buffer of edges, highest savings first. Like the array based
+	* versions, the last edge of the list (the lowest savings) is never selected.
+	*
+	* @param reader - SavingsReader sorted savings list, read from the highest savings down
+	*
+	* @param useRandomSelection - false to select the edges in order of savings
+	*
+	* @param test - Test set of characteristics for the test to be run. InstanceName, Constraints, Maximiun Computing time,...
+	* 
+	* @param aSolution - Solution set of routes resulting from the performing
+	* 
+	* @see Solution solve(SavingsReader reader, boolean useRandomSelection)
+	*/
+    public void edgeSelectionRoutingMerging(SavingsReader reader, boolean useRandomSelection, Test test, Solution aSolution) 
+    {
+    	streamEdges(reader, useRandomSelection, test, aSolution, Float.POSITIVE_INFINITY);
+    }
+    
+    /**
+	* @brief Selects the edges of a streamed savings list and merges them either in a Solution or in the workspace
+	*
+	* @param reader - SavingsReader sorted savings list, read from the highest savings down
+	*
+	* @param useRandomSelection - false to select the edges in order of savings
+	*
+	* @param test - Test set of characteristics for the test to be run. InstanceName, Constraints, Maximiun Computing time,...
+	* 
+	* @param aSolution - Solution set of routes resulting from the performing, null to merge in the workspace
+	* 
+	* @param incumbentCosts - float costs of the best solution so far, only used in the workspace
+	* 
+	* @return boolean - false if the iteration has been abandoned because it can not improve the incumbent
+	* 
+	* @see void edgeSelectionRoutingMerging(SavingsReader reader, boolean useRandomSelection, Test test, Solution aSolution)
+	*/
+    private boolean streamEdges(SavingsReader reader, boolean useRandomSelection, Test test, Solution aSolution, float incumbentCosts) 
+    {
+    	boolean prune = aSolution == null && incumbentCosts < Float.POSITIVE_INFINITY;
+    	if (windowOrigins == null)
+    	{
+    		windowOrigins = new int[SELECTION_WINDOW];
+    		windowEnds = new int[SELECTION_WINDOW];
+    		windowSavings = new double[SELECTION_WINDOW];
+    	}
+    	int[] origins = windowOrigins;
+    	int[] ends = windowEnds;
+    	double[] savings = windowSavings;
+    	int mask = SELECTION_WINDOW - 1;
+    	int head = 0;
+    	int count = 0;
+    	
+    	// An edge enters the window only once the reader shows it is not the last one
+    	boolean pending = reader.next();
+    	int pendingOrigin = pending ? reader.getOrigin() : 0;
+    	int pendingEnd = pending ? reader.getEnd() : 0;
+    	double pendingSavings = pending ? reader.getSavings() : 0;
+    	
+    	while (true)
+    	{
+    		// 3.1. Fill the window
+    		while (pending && count < SELECTION_WINDOW)
+    		{
+    			if (!reader.next())
+    			{
+    				pending = false;
+    				break;
+    			}
+    			int tail = (head + count) & mask;
+    			origins[tail] = pendingOrigin;
+    			ends[tail] = pendingEnd;
+    			savings[tail] = pendingSavings;
+    			count++;
+    			pendingOrigin = reader.getOrigin();
+    			pendingEnd = reader.getEnd();
+    			pendingSavings = reader.getSavings();
+    		}
+    		if (count == 0)
+    		{
+    			break;
+    		}
+    		if (prune && workspace.calcLowerBound(savings[head]) > incumbentCosts)
+    		{
+    			return false;
+    		}
+    		
+    		// 3.2. Select the next edge from the window (either at random or not)
+    		int pos = useRandomSelection ? random.nextPosition(count) : 0;
+    		int selected = (head + pos) & mask;
+    		int origin = origins[selected];
+    		int end = ends[selected];
+    		double edgeSavings = savings[selected];
+    		for (int p = pos; p > 0; p--)
+    		{
+    			int to = (head + p) & mask;
+    			int from = (head + p - 1) & mask;
+    			origins[to] = origins[from];
+    			ends[to] = ends[from];
+    			savings[to] = savings[from];
+    		}
+    		head = (head + 1) & mask;
+    		count--;
+
+    		if (aSolution == null)
+    		{
+    			workspace.merge(origin, end, workspace.calcCosts(origin, end), edgeSavings);
+    		}
+    		else
+    		{
+    			mergeIfFeasible(createEdge(origin, end, edgeSavings), test, aSolution);
+    		}
+    	}
+    	return true;
+    }
+    
+    /**
+	* @brief Creates the edge between two nodes, its costs taken from the cost matrix or the coordinates
+	*
+	* @param origin - int origin node index
+	*
+	* @param end - int end node index
+	*
+	* @param savings - double savings of the edge, as stored in the savings list
+	*
+	* @return Edge - new edge
+	*/
+    private Edge createEdge(int origin, int end, double savings)
+    {
+    	Node originNode = nodes[origin];
+    	Node endNode = nodes[end];
+    	CostMatrix costMatrix = inputs.getCostMatrix();
+    	if (costMatrix == null)
+    	{
+    		Edge edge = new Edge(originNode, endNode); // euclidean costs
+    		edge.setSavings(savings);
+    		return edge;
+    	}
+    	return new Edge(originNode, endNode, costMatrix.getCost(originNode.getId(), endNode.getId()), savings);
+    }
+    
+    /**
+	* @brief Merges the routes of the two nodes of an edge if all merging conditions are satisfied
+	*
+	* @param ijEdge - Edge selected from the savings list
+	*
+	* @param test - Test set of characteristics for the test to be run. InstanceName, Constraints, Maximiun Computing time,...
+	* 
+	* @param aSolution - Solution set of routes resulting from the performing
+	* 
+	* @see void edgeSelectionRoutingMerging(Node depot,int [] positions, Edge[] effList,Test test, Solution aSolution)
+	*/
+    public void mergeIfFeasible(Edge ijEdge, Test test, Solution aSolution)
+    {
+    	// 3.2. Determine the nodes i < j that define the edge
+    	Node iNode = ijEdge.getOrigin();
+    	Node jNode = ijEdge.getEnd();
  
-    		// 3.3. Determine the routes associated to each node
-    		//Route iR = getRoute(iNode, aSolution);
-    		//Route jR = getRoute(jNode, aSolution);
-    		Route iR = iNode.getRoute();
-    		Route jR = jNode.getRoute();
-
-    		// 3.4. If all necessary conditions are satisfied, apply merging process
-    		// boolean isMergingPossible = checkMergingConditions(iR, jR, ijEdge, aTest);
-    		// 3.4. If all necessary conditions are satisfied, apply merging process with diferents vehicles
-    		if (checkMergingConditions(iR, jR, ijEdge, test)) 
+    	// 3.3. Determine the routes associated to each node
+    	//Route iR = getRoute(iNode, aSolution);
+    	//Route jR = getRoute(jNode, aSolution);
+    	Route iR = iNode.getRoute();
+    	Route jR = jNode.getRoute();
+
+    	// 3.4. If all necessary conditions are satisfied, apply merging process
+    	// boolean isMergingPossible = checkMergingConditions(iR, jR, ijEdge, aTest);
+    	// 3.4. If all necessary conditions are satisfied, apply merging process with diferents vehicles
+    	if (checkMergingConditions(iR, jR, ijEdge, test)) 
+    	{
+    		if (inputs.getCostMatrix() != null && inputs.getCostMatrix().isAsymmetric())
+    		{
+    			mergeDirected(iR, jR, ijEdge, aSolution);
+    			return;
+    		}
+
+    		aSolution.substractCosts(iR);
+    		aSolution.substractCosts(jR);
+    		assignVehicle(iR, jR);
+    		if (timeWindows)
     		{
-    			aSolution.substractCosts(iR);
-    			aSolution.substractCosts(jR);
+    			joinTiming(iR, jR, ijEdge);
+    		}
 
-    			// 3.4.1. Get an edge iE in iR containing nodes i and 0
-    			Edge iE = getEdgeDepotNode(iR, iNode);// iE is either (0,i) or (i,0)
-    			// 3.4.2. Get an edge jE in jR containing nodes j and 0
-    			Edge jE = getEdgeDepotNode(jR, jNode); // jE is either (0,j) or (j,0)
+    		// 3.4.1. Get an edge iE in iR containing nodes i and 0
+    		Edge iE = getEdgeDepotNode(iR, iNode);// iE is either (0,i) or (i,0)
+    		// 3.4.2. Get an edge jE in jR containing nodes j and 0
+    		Edge jE = getEdgeDepotNode(jR, jNode); // jE is either (0,j) or (j,0)
 
-    			// 3.4.3. Remove edge iE from iR route 
-    			iR.getEdges().remove(iE);
-    			iR.substractCosts(iE);
-    			
-    			// 3.4.4. Remove edge jE from jR route
-    			jR.getEdges().remove(jE);
-    			jR.substractCosts(jE);
+    		// 3.4.3. Remove edge iE from iR route 
+    		iR.getEdges().remove(iE);
+    		iR.substractCosts(iE);
+    		
+    		// 3.4.4. Remove edge jE from jR route
+    		jR.getEdges().remove(jE);
+    		jR.substractCosts(jE);
 
-    			// 3.4.5. If there are more than one edge then i will be interior
-    			if (iR.getEdges().size() > 1) 
-    			{
-    				iNode.setIsInterior(true);
-    			}
-    			
-    			// 3.4.6. If there are more than one edge then j will be interior
-    			if (jR.getEdges().size() > 1) 
-    			{
-    				jNode.setIsInterior(true);
-    			}
-    			
-    			//3.4.7 Control routes and edges in order to merge it properly
-    			//mergingManager(iR,jR,ijEdge,aSolution);
-    			if(iR.getEdges().size() > jR.getEdges().size())
-    			{
-    				mergingManager(iR,jR,ijEdge,aSolution);
-    			}
-    			else
-    			{
-    				
-    				Edge ijNewEdge = new Edge (ijEdge);
-    				ijNewEdge.reverse();
-    				mergingManager(jR,iR,ijNewEdge,aSolution);
-    			}
+    		// 3.4.5. If there are more than one edge then i will be interior
+    		if (iR.getEdges().size() > 1) 
+    		{
+    			iNode.setIsInterior(true);
+    		}
+    		
+    		// 3.4.6. If there are more than one edge then j will be interior
+    		if (jR.getEdges().size() > 1) 
+    		{
+    			jNode.setIsInterior(true);
+    		}
+    		
+    		//3.4.7 Control routes and edges in order to merge it properly
+    		//mergingManager(iR,jR,ijEdge,aSolution);
+    		if(iR.getEdges().size() > jR.getEdges().size())
+    		{
+    			mergingManager(iR,jR,ijEdge,aSolution);
+    		}
+    		else
+    		{
     			
-    			//System.out.println(currentSol.getCosts());
-
+    			Edge ijNewEdge = new Edge (ijEdge);
+    			ijNewEdge.reverse();
+    			mergingManager(jR,iR,ijNewEdge,aSolution);
     		}
+    		
+    		//System.out.println(currentSol.getCosts());
 
     	}
-    	
-    	
     }
     
+    /**
+	* @brief Merges two routes through a directed edge, without reversing any of them
+	*
+	* @remarks Used with asymmetric cost matrices, where a route can not be traversed backwards
+	* at the same cost. Routes always start at the depot, so the merge is only possible when i is
+	* the last customer of iR and j the first customer of jR; otherwise the edge is discarded.
+	* The opposite direction is given by the edge (j, i), which has its own savings.
+	*
+	* @param iR - Route ending at node i
+	*
+	* @param jR - Route starting at node j
+	*
+	* @param ijEdge - Edge from i to j
+	*
+	* @param aSolution - Solution where the routes are assigned
+	*/
+    private void mergeDirected(Route iR, Route jR, Edge ijEdge, Solution aSolution)
+    {
+    	Node iNode = ijEdge.getOrigin();
+    	Node jNode = ijEdge.getEnd();
+    	Edge iE = iR.getEdges().get(iR.getEdges().size() - 1); // (i,0) if i is the last customer
+    	Edge jE = jR.getEdges().get(0); // (0,j) if j is the first customer
+    	if (iE.getOrigin() != iNode || jE.getEnd() != jNode)
+    	{
+    		return;
+    	}
+
+    	aSolution.substractCosts(iR);
+    	aSolution.substractCosts(jR);
+    	assignVehicle(iR, jR);
+    	if (timeWindows)
+    	{
+    		joinTiming(iR, jR, ijEdge);
+    	}
+
+    	iR.getEdges().remove(iR.getEdges().size() - 1);
+    	iR.substractCosts(iE);
+    	jR.getEdges().remove(0);
+    	jR.substractCosts(jE);
+
+    	if (iR.getEdges().size() > 1)
+    	{
+    		iNode.setIsInterior(true);
+    	}
+    	if (jR.getEdges().size() > 1)
+    	{
+    		jNode.setIsInterior(true);
+    	}
+
+    	mergeRoutes(iR, jR, ijEdge, aSolution);
+    }
+
+    /**
+	* @brief Assigns the vehicle of the route resulting from merging two routes
+	*
+	* @remarks The vehicles of both routes are given back to the fleet and the smallest one available
+	* that can carry the merged demand is taken, whichever route the other one is merged into
+	*
+	* @param iR - Route first route to be merged
+	*
+	* @param jR - Route second route to be merged
+	*/
+    private void assignVehicle(Route iR, Route jR)
+    {
+    	int heldI = getVehicleClass(iR);
+    	int heldJ = getVehicleClass(jR);
+    	int vehicle = fleet.select(iR.getDemand() + jR.getDemand(), heldI, heldJ);
+    	fleet.release(heldI);
+    	fleet.release(heldJ);
+    	fleet.take(vehicle);
+    	iR.setVehicle(fleet.getVehicle(vehicle));
+    	jR.setVehicle(fleet.getVehicle(vehicle));
+    }
+
+    /**
+	* @brief Sets the timing of the route resulting from merging two routes through an edge
+	*
+	* @remarks Set on both routes before they are merged, whichever route the other one is merged into
+	*
+	* @param iR - Route route of the origin of the edge
+	*
+	* @param jR - Route route of the end of the edge
+	*
+	* @param ijEdge - Edge merging the routes
+	*/
+    private void joinTiming(Route iR, Route jR, Edge ijEdge)
+    {
+    	Node iNode = ijEdge.getOrigin();
+    	Node jNode = ijEdge.getEnd();
+    	Node first = getOtherEnd(iR, iNode);
+    	Node last = getOtherEnd(jR, jNode);
+    	RouteTiming fromFirst = iR.getTimingFrom(first).join(jR.getTimingFrom(jNode), ijEdge.getCosts());
+    	RouteTiming fromLast = jR.getTimingFrom(last).join(iR.getTimingFrom(iNode), ijEdge.getCosts());
+    	iR.setTiming(first, fromFirst, fromLast);
+    	jR.setTiming(first, fromFirst, fromLast);
+    }
+
+    /**
+	* @brief Checks the time windows of the route resulting from merging two routes through an edge
+	*
+	* @remarks Only the timing of the routes is used, the check takes constant time whatever their length
+	*
+	* @param iR - Route route of the origin of the edge
+	*
+	* @param jR - Route route of the end of the edge
+	*
+	* @param ijEdge - Edge merging the routes
+	*
+	* @return boolean - true if the merged route is feasible
+	*/
+    private boolean fitsTimeWindows(Route iR, Route jR, Edge ijEdge)
+    {
+    	Node iNode = ijEdge.getOrigin();
+    	Node jNode = ijEdge.getEnd();
+    	Node first = getOtherEnd(iR, iNode);
+    	Node last = getOtherEnd(jR, jNode);
+    	return iR.getTimingFrom(first).canJoin(jR.getTimingFrom(jNode), ijEdge.getCosts(), nodes[0],
+    			getEdgeDepotNode(iR, first).getCosts(), getEdgeDepotNode(jR, last).getCosts());
+    }
+
+    /**
+	* @brief Gets the end customer of a route other than a given one
+	*
+	* @param aRoute - Route starting and ending at the depot
+	*
+	* @param endNode - Node customer connected to the depot
+	*
+	* @return Node - the other customer connected to the depot (endNode for a single customer)
+	*/
+    private Node getOtherEnd(Route aRoute, Node endNode)
+    {
+    	Node first = aRoute.getEdges().get(0).getEnd();
+    	return first == endNode ? aRoute.getEdges().get(aRoute.getEdges().size() - 1).getOrigin() : first;
+    }
+
+    /**
+	* @brief Gets the capacity class of the vehicle of a route
+	*
+	* @param aRoute - Route of the solution being built
+	*
+	* @return int - class, -1 if the route holds no vehicle
+	*/
+    private int getVehicleClass(Route aRoute)
+    {
+    	Vehicle vehicle = aRoute.getVehicle();
+    	return vehicle == null ? -1 : fleet.classOf(vehicle.getVcap()); // the capacity of a class maps to the class
+    }
+
     /**
 	* @brief Gets the edge directly connected to the depot
 	*
@@ -359,15 +1363,15 @@ public class RandCWS
    	*/
     public void mergingManager(Route bigRoute,Route smallRoute,Edge newEdge,Solution aSolution)
     {
-    	// 1. If new big route does not start at 0
-		if (bigRoute.getEdges().get(0).getOrigin().getId() != 0) 
+    	// 1. If new big route does not start at the depot
+		if (bigRoute.getEdges().get(0).getOrigin() != nodes[0]) 
 		{
 			//1.1.1 newEdge is reversed in order to have the same direction of the big route
 			Edge reverseNewEdge = new Edge (newEdge);
 			reverseNewEdge.reverse();
 			
-			//1.1.2 If new small route does start at 0 it must be reversed to have the same direction like the big route
-			if (smallRoute.getEdges().get(0).getOrigin().getId() != 0) 
+			//1.1.2 If new small route does start at the depot it must be reversed to have the same direction like the big route
+			if (smallRoute.getEdges().get(0).getOrigin() != nodes[0]) 
 			{
 				reverseRoute(smallRoute);
 			}
@@ -377,8 +1381,8 @@ public class RandCWS
 	    }
 		else
 		{
-			// 1.2.1 If new small route does start at 0 it must be reversed to have the same direction like the big one
-			if (smallRoute.getEdges().get(0).getOrigin().getId() == 0) 
+			// 1.2.1 If new small route does start at the depot it must be reversed to have the same direction like the big one
+			if (smallRoute.getEdges().get(0).getOrigin() == nodes[0]) 
 			{
 				reverseRoute(smallRoute);
 			}
@@ -427,7 +1431,7 @@ public class RandCWS
     	}
     
     	//3. Delete route jR from iterSolution
-    	aSolution.getRoutes().remove(auxRoute);
+    	aSolution.removeRoute(auxRoute);
     	aSolution.addCosts(finalRoute);
     	
     }
@@ -465,8 +1469,8 @@ public class RandCWS
         	return false;
         }
         
-        // Condition 3: demand after merging can be covered by a single vehicle
-        if (iR.getDemand() + jR.getDemand() > inputs.getVehicle(0).getVcap())
+        // Condition 3: demand after merging can be covered by a single vehicle still available
+        if (fleet.select(iR.getDemand() + jR.getDemand(), getVehicleClass(iR), getVehicleClass(jR)) < 0)
         {
         	return false;
         }
@@ -478,6 +1482,12 @@ public class RandCWS
         {
         	return false;
         }
+        
+        // Condition 5: the merged route arrives in time at every customer and back at the depot
+        if (timeWindows && !fitsTimeWindows(iR, jR, ijEdge))
+        {
+        	return false;
+        }
 
         return true;
     }
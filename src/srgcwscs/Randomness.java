@@ -67,6 +67,11 @@ public class Randomness
      * @brief rng Random object manager from java util api
      */
     private Random rngJava;
+    
+    /**
+     * @brief Positions not selected yet, reused by calcPositionsArrayFast(int[], int)
+     */
+    private int[] auxPositions;
 
     /**
 	* @brief Randomness Constructor
@@ -80,8 +85,7 @@ public class Randomness
         aTest = test;
     	inputs = inputData;
         beta = aTest.getBetaMin();
-        int n = inputData.getNodeList().length;
-        nEdges = (n - 1) * (n - 2) / 2; // The depot is not considered
+        nEdges = (int) Math.min(inputData.getNEdges(), Inputs.MAX_HEAP_EDGES); // The depot is not considered, arrays only for in-heap lists
         rng = initializeRNG();
         
         rngJava = initializeRngJava();
@@ -206,38 +210,59 @@ public class Randomness
     /**
    	* @brief Calculates a new savings edge order according to a randomization bias.It uses Lecuyer library for number generation. 
    	*
-   	* @remarks This method is faster than calcPositionsArray() it uses remove LinkedList method to speed up shifting process
+   	* @remarks This method is faster than calcPositionsArray(), see calcPositionsArrayFast(int[], int)
    	* 
    	* @return int[] - new array of positions for selecting edges
    	*/
    public int[] calcPositionsArrayFast() 
    {
-       String distribution = aTest.getDistribution();
        int[] posArray = new int[nEdges];
-      
+       calcPositionsArrayFast(posArray, nEdges);
+       return posArray;
+   }
+   
+    /**
+   	* @brief Fills a given array with a new savings edge order according to a randomization bias, without allocating memory
+   	*
+   	* @remarks The positions not selected yet are kept in a reusable array. A selected position is removed
+   	* by shifting the ones before it, which costs the same as the LinkedList lookup of the previous
+   	* version (positions are biased towards the beginning) and gives exactly the same order.
+   	* 
+   	* @param posArray - int[] array to fill, at least n positions long
+   	* 
+   	* @param n - int number of positions to order
+   	*/
+   public void calcPositionsArrayFast(int[] posArray, int n) 
+   {
+       String distribution = aTest.getDistribution();
 
        // Select a new beta value (only for Geometric distribution)
        beta = rng.nextDouble() * (aTest.getBetaMax() - aTest.getBetaMin())
                + aTest.getBetaMin();
 
        // Reset auxArray
-       LinkedList<Integer> auxArray = new LinkedList<Integer>();
-       
-       for (int i = 0; i < nEdges; i++) 
+       if (auxPositions == null || auxPositions.length < n)
        {
-           auxArray.add(i);
+    	   auxPositions = new int[n];
        }
-       
-       int pos = 0;
-       // Assign new random positions
-       for (int i = 0; i < nEdges; i++) 
+       int[] auxArray = auxPositions;
+       for (int i = 0; i < n; i++) 
        {
-           pos = getRandomPosition(nEdges - i, distribution);
-           posArray[i] = auxArray.get(pos);
-           auxArray.remove(pos);
+           auxArray[i] = i;
        }
        
-       return posArray;
+       // Assign new random positions, auxArray[first..n-1] are the positions not selected yet
+       int first = 0;
+       for (int i = 0; i < n; i++) 
+       {
+           int pos = first + getRandomPosition(n - i, distribution);
+           posArray[i] = auxArray[pos];
+           for (int j = pos; j > first; j--)
+           {
+        	   auxArray[j] = auxArray[j - 1];
+           }
+           first++;
+       }
    }
    
    /**
@@ -279,6 +304,75 @@ public class Randomness
       return posArray;
    }
 
+    /**
+ 	* @brief Selects a new beta value for the geometric distribution, used before streaming a new solution
+ 	*
+ 	* @see int nextPosition(int n)
+ 	*/
+    public void selectBeta() 
+    {
+        beta = rng.nextDouble() * (aTest.getBetaMax() - aTest.getBetaMin())
+                + aTest.getBetaMin();
+    }
+
+    /**
+ 	* @brief Gets the current beta value of the geometric distribution
+ 	*
+ 	* @return double - beta selected by the last call to selectBeta() or calcPositionsArray*()
+ 	*/
+    public double getBeta() 
+    {
+        return beta;
+    }
+
+    /**
+ 	* @brief Gets the next random position among n candidates according to the test distribution
+ 	*
+ 	* @remarks Used to select edges one at a time from a window over a sorted savings list too large
+ 	* for an array of positions
+ 	*
+ 	* @param n - int number of candidates
+ 	*
+ 	* @return int - random position between 0 and n - 1, biased towards 0
+ 	*/
+    public int nextPosition(int n) 
+    {
+        return getRandomPosition(n, aTest.getDistribution());
+    }
+
+    /**
+ 	* @brief Gets a uniform random number from lecuyer library
+ 	*
+ 	* @return double - random number in (0, 1)
+ 	*/
+    public double nextDouble() 
+    {
+        return rng.nextDouble();
+    }
+
+    /**
+ 	* @brief Gets a random position among n candidates from a geometric distribution with a given parameter
+ 	*
+ 	* @remarks Positions beyond the candidates are drawn again instead of being taken modulo n, so the
+ 	* bias is kept when there are only a few candidates
+ 	*
+ 	* @param n - int number of candidates
+ 	*
+ 	* @param p - double parameter of the geometric distribution (probability of position 0), in (0, 1)
+ 	*
+ 	* @return int - random position between 0 and n - 1, biased towards 0
+ 	*/
+    public int nextGeometricPosition(int n, double p) 
+    {
+        double logQ = Math.log(1 - p);
+        int pos = (int) (Math.log(rng.nextDouble()) / logQ);
+        while (pos >= n)
+        {
+            pos = (int) (Math.log(rng.nextDouble()) / logQ);
+        }
+        return pos;
+    }
+
     /**
  	* @brief Gets a new number from lecuyer library
  	*
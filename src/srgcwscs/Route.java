@@ -17,6 +17,7 @@
 package srgcwscs;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 
 /**
 * @class Route srgcwscs.Route
@@ -64,6 +65,11 @@ public class Route
      */
     private ArrayList<Node> nodes; 
     
+    /**
+     * @brief Ids of the nodes in the route, so membership is checked without scanning the list
+     */
+    private BitSet nodeIds;
+    
     /**
      * @brief x-coordinate of the route center
      */
@@ -78,6 +84,26 @@ public class Route
      * @brief Vehicle associated to the route
      */
     private Vehicle vehicle;
+    
+    /**
+     * @brief End customer the timing of the route starts from (null without time windows)
+     */
+    private Node timingStart;
+    
+    /**
+     * @brief Timing of the route traversed from timingStart
+     */
+    private RouteTiming forwardTiming;
+    
+    /**
+     * @brief Timing of the route traversed towards timingStart
+     */
+    private RouteTiming backwardTiming;
+    
+    /**
+     * @brief Position of the route in the list of routes of its solution, -1 if not in any (see Solution.removeRoute())
+     */
+    private int solutionIndex;
 
     /**
   	* @brief Route Constructor
@@ -90,8 +116,10 @@ public class Route
         demand = 0;
         edges = new ArrayList<Edge>();
         nodes = new ArrayList<Node>();
+        nodeIds = new BitSet();
         xRouteCenter = (float) 0.0;
         yRouteCenter = (float) 0.0;
+        solutionIndex = -1;
     }
     
     /**
@@ -107,27 +135,36 @@ public class Route
         demand = referenceRoute.demand;
         edges = referenceRoute.edges;
         nodes = referenceRoute.nodes;
+        nodeIds = referenceRoute.nodeIds;
         xRouteCenter = referenceRoute.xRouteCenter;
         yRouteCenter = referenceRoute.yRouteCenter;
+        solutionIndex = -1; // the copy is not in the solution of the original
     }
 
     /**
   	* @brief Adds a new edge to he route
   	*
-  	* @remarks Edges nodes are also added to the route
+  	* @remarks Edges nodes are also added to the route, membership is checked by node id in constant time
   	*/
     public void addEdge(Edge anEdge) 
     {
         edges.add(anEdge);
-
-        if (nodes.contains(anEdge.getOrigin()) == false) 
-        {
-            nodes.add(anEdge.getOrigin());
-        }
-
-        if (nodes.contains(anEdge.getEnd()) == false) 
+        addNode(anEdge.getOrigin());
+        addNode(anEdge.getEnd());
+    }
+    
+    /**
+  	* @brief Adds a node to the list of nodes of the route, unless it is already in it
+  	* 
+  	* @param aNode - Node to be added
+  	*/
+    private void addNode(Node aNode)
+    {
+        int nodeId = aNode.getId();
+        if (nodeIds.get(nodeId) == false)
         {
-            nodes.add(anEdge.getEnd());
+            nodeIds.set(nodeId);
+            nodes.add(aNode);
         }
     }
     
@@ -138,6 +175,7 @@ public class Route
     {
     	edges.clear();
     	nodes.clear();
+    	nodeIds.clear();
     }
     
     /**
@@ -151,6 +189,11 @@ public class Route
     {
     	edges = newEdges;
     	nodes = newNodes;
+    	nodeIds = new BitSet();
+    	for (int k = 0; k < nodes.size(); k++)
+    	{
+    		nodeIds.set(nodes.get(k).getId());
+    	}
     }
 
     /**
@@ -193,6 +236,16 @@ public class Route
         costs = c;
     }
 
+    /**
+  	* @brief Update the position of the route in the list of routes of its solution
+  	* 
+  	* @param index - int position, -1 if the route is not in any solution
+  	*/
+    public void setSolutionIndex(int index) 
+    {
+        solutionIndex = index;
+    }
+
     /**
   	* @brief Update X coordinate route center
   	* 
@@ -244,6 +297,16 @@ public class Route
         return demand;
     }
 
+    /**
+  	* @brief Get the position of the route in the list of routes of its solution
+  	* 
+  	* @return int - position, -1 if the route is not in any solution
+  	*/
+    public int getSolutionIndex() 
+    {
+        return solutionIndex;
+    }
+
     /**
   	* @brief Get route identification
   	* 
@@ -314,6 +377,35 @@ public class Route
         this.vehicle = vehicle;
     }
 
+    /**
+  	* @brief Updates the timing of the route in both directions
+  	* 
+  	* @remarks The timing is kept by end customer, so it stays valid when the edges are reversed
+  	* 
+  	* @param start - Node end customer of the route
+  	* 
+  	* @param fromStart - RouteTiming route traversed from start
+  	* 
+  	* @param towardsStart - RouteTiming route traversed towards start
+  	*/
+    public void setTiming(Node start, RouteTiming fromStart, RouteTiming towardsStart) 
+    {
+        timingStart = start;
+        forwardTiming = fromStart;
+        backwardTiming = towardsStart;
+    }
+
+    /**
+  	* @brief Gets the timing of the route traversed from one of its end customers
+  	* 
+  	* @param start - Node end customer the route is traversed from
+  	* 
+  	* @return RouteTiming - timing, null without time windows
+  	*/
+    public RouteTiming getTimingFrom(Node start) 
+    {
+        return start == timingStart ? forwardTiming : backwardTiming;
+    }
 
 
     /**
@@ -0,0 +1,589 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+/**
+* @class RouteImprover srgcwscs.RouteImprover
+*
+* @brief This class improves the routes of an encoded solution one at a time with 2-opt and or-opt
+* moves, driven by neighbour lists and don't-look bits.
+*
+* @remarks Only intra-route moves are made, so the demand and the vehicle of every route are kept and
+* the costs of a route can only decrease (route costs limits are kept too). The moves of a customer are
+* the ones adding an edge to one of its NEIGHBOURS nearest customers in the same route; the customers
+* whose edges have not changed since their last unsuccessful search are not searched again, so a pass
+* over a route costs linear time plus the moves made. The neighbour list of a customer is computed the
+* first time it is needed. With an asymmetric cost matrix only the moves keeping the direction of every
+* customer chain are made (or-opt), and with time windows every improving move is checked by traversing
+* the new route.
+*
+* @bibliography Bentley, J.L. (1992). Fast algorithms for geometric traveling salesman problems.
+* ORSA Journal on Computing, 4(4), 387-411.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class RouteImprover
+{
+	/**
+     * @brief Size of the neighbour list of each customer
+     */
+	private static final int NEIGHBOURS = 8;
+
+	/**
+     * @brief Largest number of customers moved by an or-opt move
+     */
+	private static final int MAX_SEGMENT = 3;
+
+	/**
+     * @brief Smallest costs decrease of a move
+     */
+	private static final double EPSILON = 1e-7;
+
+	/**
+     * @brief Workspace of the instance, costs and Solution objects of the improved solutions
+     */
+	private CwsWorkspace workspace;
+
+	/**
+     * @brief Nodes of the instance, the depot first
+     */
+	private Node[] nodes;
+
+	/**
+     * @brief true if the cost matrix is asymmetric
+     */
+	private boolean directed;
+
+	/**
+     * @brief true if any node has a time window
+     */
+	private boolean timeWindows;
+
+	/**
+     * @brief Nearest customers of each customer, nearest first (null until first needed)
+     */
+	private int[][] neighbours;
+
+	/**
+     * @brief Route being improved: the depot, its customers and the depot again
+     */
+	private int[] route;
+
+	/**
+     * @brief Route resulting from a move
+     */
+	private int[] trial;
+
+	/**
+     * @brief Position of each customer in the route
+     */
+	private int[] position;
+
+	/**
+     * @brief Stamp of the route each customer was last seen in, tells the customers of the current route
+     */
+	private int[] routeStamp;
+
+	/**
+     * @brief Stamp of the current route
+     */
+	private int stamp;
+
+	/**
+     * @brief true for the customers waiting in the queue (their don't-look bit is off)
+     */
+	private boolean[] queued;
+
+	/**
+     * @brief Circular queue of the customers to search
+     */
+	private int[] queue;
+
+	/**
+     * @brief Position of the first customer of the queue
+     */
+	private int queueHead;
+
+	/**
+     * @brief Number of customers in the queue
+     */
+	private int queueSize;
+
+	/**
+	* @brief RouteImprover Constructor
+	*
+	* @param inputs - Inputs nodes, vehicles and costs of the instance
+	*
+	* @param test - Test route costs constraints
+	*/
+	public RouteImprover(Inputs inputs, Test test)
+	{
+		workspace = new CwsWorkspace(inputs, test);
+		nodes = inputs.getNodeList();
+		CostMatrix costMatrix = inputs.getCostMatrix();
+		directed = costMatrix != null && costMatrix.isAsymmetric();
+		timeWindows = false;
+		for (int i = 0; i < nodes.length; i++)
+		{
+			timeWindows |= nodes[i].hasTimeWindow();
+		}
+		int n = nodes.length;
+		neighbours = new int[n][];
+		route = new int[n + 1];
+		trial = new int[n + 1];
+		position = new int[n];
+		routeStamp = new int[n];
+		stamp = 0;
+		queued = new boolean[n];
+		queue = new int[n];
+	}
+
+	/**
+	* @brief Improves the routes of a solution
+	*
+	* @param encoding - CompactSolution solution of the instance
+	*
+	* @return CompactSolution - improved solution, the same one if no move improves it
+	*/
+	public CompactSolution improve(CompactSolution encoding)
+	{
+		int[] tour = null;
+		double gain = 0;
+		for (int r = 0; r < encoding.getNRoutes(); r++)
+		{
+			int first = encoding.getRouteStart(r);
+			int m = encoding.getRouteStart(r + 1) - first;
+			if (m < (directed ? 2 : 3)) // no move changes the costs
+			{
+				continue;
+			}
+			double routeGain = improveRoute(encoding.getTour(), first, m);
+			if (routeGain > 0)
+			{
+				if (tour == null)
+				{
+					tour = encoding.getTour().clone();
+				}
+				System.arraycopy(route, 1, tour, first, m);
+				gain += routeGain;
+			}
+		}
+		if (tour == null)
+		{
+			return encoding;
+		}
+		int[] routeStarts = new int[encoding.getNRoutes() + 1];
+		for (int r = 0; r < routeStarts.length; r++)
+		{
+			routeStarts[r] = encoding.getRouteStart(r);
+		}
+		return new CompactSolution(workspace, (float) (encoding.getCosts() - gain), tour, routeStarts);
+	}
+
+	/**
+	* @brief Improves a route until no customer has an improving move
+	*
+	* @remarks The improved route is left in route[1..m]
+	*
+	* @param tour - int[] giant tour of the solution
+	*
+	* @param first - int position in the tour of the first customer of the route
+	*
+	* @param m - int number of customers of the route
+	*
+	* @return double - costs decrease
+	*/
+	private double improveRoute(int[] tour, int first, int m)
+	{
+		stamp++;
+		route[0] = 0;
+		route[m + 1] = 0;
+		queueHead = 0;
+		queueSize = 0;
+		for (int k = 1; k <= m; k++)
+		{
+			int i = tour[first + k - 1];
+			route[k] = i;
+			position[i] = k;
+			routeStamp[i] = stamp;
+			push(i);
+		}
+		double gain = 0;
+		while (queueSize > 0)
+		{
+			int a = queue[queueHead];
+			queueHead = (queueHead + 1) % queue.length;
+			queueSize--;
+			queued[a] = false;
+			gain += improveCustomer(a, m);
+		}
+		return gain;
+	}
+
+	/**
+	* @brief Makes the first improving move adding an edge between a customer and one of its neighbours
+	*
+	* @param a - int customer
+	*
+	* @param m - int number of customers of the route
+	*
+	* @return double - costs decrease, 0 if no move improves the route
+	*/
+	private double improveCustomer(int a, int m)
+	{
+		int p = position[a];
+		double succCosts = costs(a, route[p + 1]);
+		double predCosts = costs(route[p - 1], a);
+		double gain = 0;
+		for (int c : getNeighbours(a))
+		{
+			if (routeStamp[c] != stamp)
+			{
+				continue;
+			}
+			int q = position[c];
+			if (!directed)
+			{
+				double acCosts = costs(a, c);
+				if (acCosts >= succCosts && acCosts >= predCosts) // no edge of a gets shorter
+				{
+					break;
+				}
+				// 2-opt: (a, succ a) and (c, succ c) replaced by (a, c) and (succ a, succ c)
+				if (acCosts < succCosts)
+				{
+					gain = twoOpt(Math.min(p, q), Math.max(p, q), m);
+				}
+				// 2-opt: (pred a, a) and (pred c, c) replaced by (pred a, pred c) and (a, c)
+				if (gain == 0 && acCosts < predCosts)
+				{
+					gain = twoOpt(Math.min(p, q) - 1, Math.max(p, q) - 1, m);
+				}
+			}
+			// or-opt: a and the customers after it moved after c, or a and the ones before it moved before c
+			for (int length = 1; gain == 0 && length <= MAX_SEGMENT; length++)
+			{
+				if (p + length - 1 <= m)
+				{
+					gain = orOpt(p, p + length - 1, q, false, m);
+					if (gain == 0 && !directed && length > 1) // reversed, a just before c
+					{
+						gain = orOpt(p, p + length - 1, q - 1, true, m);
+					}
+				}
+				if (gain == 0 && p - length + 1 >= 1)
+				{
+					gain = orOpt(p - length + 1, p, q - 1, false, m);
+					if (gain == 0 && !directed && length > 1) // reversed, a just after c
+					{
+						gain = orOpt(p - length + 1, p, q, true, m);
+					}
+				}
+			}
+			if (gain > 0)
+			{
+				return gain;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	* @brief Makes a 2-opt move if it improves the route: the edges leaving positions i and j are
+	* replaced by (route[i], route[j]) and (route[i + 1], route[j + 1]), reversing the customers in between
+	*
+	* @param i - int first position
+	*
+	* @param j - int second position, greater than i + 1
+	*
+	* @param m - int number of customers of the route
+	*
+	* @return double - costs decrease, 0 if the move is not made
+	*/
+	private double twoOpt(int i, int j, int m)
+	{
+		if (j <= i + 1)
+		{
+			return 0;
+		}
+		int a = route[i];
+		int b = route[i + 1];
+		int c = route[j];
+		int d = route[j + 1];
+		double delta = costs(a, c) + costs(b, d) - costs(a, b) - costs(c, d);
+		if (delta > -EPSILON)
+		{
+			return 0;
+		}
+		System.arraycopy(route, 0, trial, 0, m + 2);
+		for (int k = i + 1; k <= j; k++)
+		{
+			trial[k] = route[i + 1 + j - k];
+		}
+		if (!accept(m))
+		{
+			return 0;
+		}
+		push(a);
+		push(b);
+		push(c);
+		push(d);
+		return -delta;
+	}
+
+	/**
+	* @brief Makes an or-opt move if it improves the route: the customers from position s to e are
+	* moved between positions g and g + 1
+	*
+	* @param s - int position of the first customer moved
+	*
+	* @param e - int position of the last customer moved
+	*
+	* @param g - int position the customers are moved after, out of s - 1..e
+	*
+	* @param reversed - boolean true to reverse the customers moved
+	*
+	* @param m - int number of customers of the route
+	*
+	* @return double - costs decrease, 0 if the move is not made
+	*/
+	private double orOpt(int s, int e, int g, boolean reversed, int m)
+	{
+		if (g >= s - 1 && g <= e)
+		{
+			return 0;
+		}
+		int before = route[s - 1];
+		int after = route[e + 1];
+		int x = route[g];
+		int y = route[g + 1];
+		double delta = costs(before, after) - costs(before, route[s]) - costs(route[e], after) - costs(x, y)
+				+ (reversed ? costs(x, route[e]) + costs(route[s], y) : costs(x, route[s]) + costs(route[e], y));
+		if (delta > -EPSILON)
+		{
+			return 0;
+		}
+		int first = route[s];
+		int last = route[e];
+		int k = 0;
+		if (g < s)
+		{
+			k = copy(0, g, k);
+			k = copySegment(s, e, reversed, k);
+			k = copy(g + 1, s - 1, k);
+			copy(e + 1, m + 1, k);
+		}
+		else
+		{
+			k = copy(0, s - 1, k);
+			k = copy(e + 1, g, k);
+			k = copySegment(s, e, reversed, k);
+			copy(g + 1, m + 1, k);
+		}
+		if (!accept(m))
+		{
+			return 0;
+		}
+		push(before);
+		push(after);
+		push(x);
+		push(y);
+		push(first);
+		push(last);
+		return -delta;
+	}
+
+	/**
+	* @brief Copies a part of the route to the trial route
+	*
+	* @param from - int first position (included)
+	*
+	* @param to - int last position (included)
+	*
+	* @param k - int position in the trial route
+	*
+	* @return int - next position in the trial route
+	*/
+	private int copy(int from, int to, int k)
+	{
+		int length = to - from + 1;
+		System.arraycopy(route, from, trial, k, length);
+		return k + length;
+	}
+
+	/**
+	* @brief Copies the customers moved by an or-opt move to the trial route
+	*
+	* @param s - int position of the first customer moved
+	*
+	* @param e - int position of the last customer moved
+	*
+	* @param reversed - boolean true to copy them in reverse order
+	*
+	* @param k - int position in the trial route
+	*
+	* @return int - next position in the trial route
+	*/
+	private int copySegment(int s, int e, boolean reversed, int k)
+	{
+		if (!reversed)
+		{
+			return copy(s, e, k);
+		}
+		for (int p = e; p >= s; p--)
+		{
+			trial[k++] = route[p];
+		}
+		return k;
+	}
+
+	/**
+	* @brief Makes the trial route the current one if it fits the time windows
+	*
+	* @param m - int number of customers of the route
+	*
+	* @return boolean - true if the trial route has been accepted
+	*/
+	private boolean accept(int m)
+	{
+		if (timeWindows && !fitsTimeWindows(trial, m))
+		{
+			return false;
+		}
+		int[] swap = route;
+		route = trial;
+		trial = swap;
+		for (int k = 1; k <= m; k++)
+		{
+			position[route[k]] = k;
+		}
+		return true;
+	}
+
+	/**
+	* @brief Checks whether a route fits the time windows of its customers and of the depot
+	*
+	* @remarks Leaving the depot as soon as it opens, as in RouteTiming.fitsDepot(), and waiting
+	* at the customers that are not ready yet
+	*
+	* @param aRoute - int[] the depot, the customers and the depot again
+	*
+	* @param m - int number of customers of the route
+	*
+	* @return boolean - true if no customer is reached late and the route is back in time
+	*/
+	private boolean fitsTimeWindows(int[] aRoute, int m)
+	{
+		double time = nodes[0].getReadyTime();
+		for (int k = 1; k <= m; k++)
+		{
+			Node customer = nodes[aRoute[k]];
+			time = Math.max(time + costs(aRoute[k - 1], aRoute[k]), customer.getReadyTime());
+			if (time > customer.getDueTime())
+			{
+				return false;
+			}
+			time += customer.getServiceTime();
+		}
+		return time + costs(aRoute[m], 0) <= nodes[0].getDueTime();
+	}
+
+	/**
+	* @brief Adds a customer to the queue, switching its don't-look bit off
+	*
+	* @param i - int node position (the depot is ignored)
+	*/
+	private void push(int i)
+	{
+		if (i != 0 && !queued[i])
+		{
+			queue[(queueHead + queueSize) % queue.length] = i;
+			queueSize++;
+			queued[i] = true;
+		}
+	}
+
+	/**
+	* @brief Gets the nearest customers of a customer, computing them on the first call
+	*
+	* @remarks With an asymmetric cost matrix the costs of both directions are added
+	*
+	* @param a - int customer
+	*
+	* @return int[] - up to NEIGHBOURS customers, nearest first
+	*/
+	private int[] getNeighbours(int a)
+	{
+		if (neighbours[a] != null)
+		{
+			return neighbours[a];
+		}
+		int k = Math.max(0, Math.min(NEIGHBOURS, nodes.length - 2));
+		int[] list = new int[k];
+		double[] listCosts = new double[k];
+		int size = 0;
+		for (int i = 1; i < nodes.length && k > 0; i++)
+		{
+			if (i == a)
+			{
+				continue;
+			}
+			double c = directed ? costs(a, i) + costs(i, a) : costs(a, i);
+			if (size == k && c >= listCosts[k - 1])
+			{
+				continue;
+			}
+			int p = size < k ? size++ : k - 1;
+			while (p > 0 && listCosts[p - 1] > c) // insertion in order
+			{
+				list[p] = list[p - 1];
+				listCosts[p] = listCosts[p - 1];
+				p--;
+			}
+			list[p] = i;
+			listCosts[p] = c;
+		}
+		neighbours[a] = list;
+		return list;
+	}
+
+	/**
+	* @brief Gets the costs of going from a node to another one
+	*
+	* @param i - int origin node position (0 for the depot)
+	*
+	* @param j - int end node position (0 for the depot)
+	*
+	* @return double - costs
+	*/
+	private double costs(int i, int j)
+	{
+		if (i == 0)
+		{
+			return workspace.getDepotCosts(j);
+		}
+		if (j == 0)
+		{
+			return workspace.getReturnCosts(i);
+		}
+		return workspace.calcCosts(i, j);
+	}
+}
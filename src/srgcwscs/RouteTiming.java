@@ -0,0 +1,259 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+/**
+* @class RouteTiming srgcwscs.RouteTiming
+*
+* @brief This class represents the time data of a chain of customers traversed in a given direction:
+* the earliest and latest times its first service can start and its duration, so that two chains
+* can be joined and checked against the time windows in constant time.
+*
+* @remarks A chain is feasible when it can start at any time between its earliest and latest start
+* times without arriving late at any customer; starting in that interval, it ends its duration later
+* (waiting times included). A route feasible in one direction may not be in the other one, the
+* infeasible chains have a latest start time of Double.NEGATIVE_INFINITY. Travel times are the costs of the edges. The static methods work on the
+* primitive values, as kept in the arrays of CwsWorkspace, and the objects are kept by the routes of
+* the object path of RandCWS.
+*
+* @bibliography Savelsbergh, M.W.P. (1992). The vehicle routing problem with time windows:
+* minimizing route duration. ORSA Journal on Computing, 4(2), 146-154.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class RouteTiming
+{
+	/**
+     * @brief Duration of the chain, from the start of its first service to the end of its last one
+     */
+	private double duration;
+
+	/**
+     * @brief Earliest time the first service can start without waiting later on
+     */
+	private double earliest;
+
+	/**
+     * @brief Latest time the first service can start without arriving late at any customer
+     */
+	private double latest;
+
+	/**
+	* @brief RouteTiming Constructor, a chain of a single customer
+	*
+	* @param customer - Node with its time window
+	*/
+	public RouteTiming(Node customer)
+	{
+		this(customer.getServiceTime(), customer.getReadyTime(), customer.getDueTime());
+	}
+
+	/**
+	* @brief RouteTiming Constructor
+	*
+	* @param duration - double duration of the chain
+	*
+	* @param earliest - double earliest start time
+	*
+	* @param latest - double latest start time
+	*/
+	public RouteTiming(double duration, double earliest, double latest)
+	{
+		this.duration = duration;
+		this.earliest = earliest;
+		this.latest = latest;
+	}
+
+	/**
+	* @brief Gets the duration of the chain
+	*
+	* @return double - duration, waiting times included
+	*/
+	public double getDuration()
+	{
+		return duration;
+	}
+
+	/**
+	* @brief Gets the earliest start time of the chain
+	*
+	* @return double - earliest start time
+	*/
+	public double getEarliest()
+	{
+		return earliest;
+	}
+
+	/**
+	* @brief Gets the latest start time of the chain
+	*
+	* @return double - latest start time
+	*/
+	public double getLatest()
+	{
+		return latest;
+	}
+
+	/**
+	* @brief Checks whether a chain can be followed by another one and fit the time windows of the depot
+	*
+	* @param next - RouteTiming chain visited after this one
+	*
+	* @param travel - double travel time from the last customer of this chain to the first one of next
+	*
+	* @param depot - Node depot with its time window
+	*
+	* @param outTime - double travel time from the depot to the first customer of this chain
+	*
+	* @param backTime - double travel time from the last customer of next to the depot
+	*
+	* @return boolean - true if the joined chain is a feasible route
+	*/
+	public boolean canJoin(RouteTiming next, double travel, Node depot, double outTime, double backTime)
+	{
+		return canJoin(duration, earliest, latest, travel, next.earliest, next.latest)
+			&& fitsDepot(joinDuration(duration, earliest, latest, travel, next.duration, next.earliest, next.latest),
+				joinEarliest(duration, earliest, latest, travel, next.earliest),
+				joinLatest(duration, earliest, latest, travel, next.latest),
+				depot, outTime, backTime);
+	}
+
+	/**
+	* @brief Joins a chain with another one
+	*
+	* @param next - RouteTiming chain visited after this one
+	*
+	* @param travel - double travel time from the last customer of this chain to the first one of next
+	*
+	* @return RouteTiming - new joined chain
+	*/
+	public RouteTiming join(RouteTiming next, double travel)
+	{
+		return new RouteTiming(joinDuration(duration, earliest, latest, travel, next.duration, next.earliest, next.latest),
+			joinEarliest(duration, earliest, latest, travel, next.earliest),
+			joinLatest(duration, earliest, latest, travel, next.latest));
+	}
+
+	/**
+	* @brief Checks whether a chain A can be followed by a chain B without arriving late at B
+	*
+	* @param durationA - double duration of A
+	*
+	* @param earliestA - double earliest start time of A
+	*
+	* @param latestA - double latest start time of A
+	*
+	* @param travel - double travel time from the last customer of A to the first one of B
+	*
+	* @param earliestB - double earliest start time of B
+	*
+	* @param latestB - double latest start time of B
+	*
+	* @return boolean - true if the joined chain is feasible
+	*/
+	public static boolean canJoin(double durationA, double earliestA, double latestA, double travel,
+			double earliestB, double latestB)
+	{
+		return earliestA + durationA + travel <= latestB;
+	}
+
+	/**
+	* @brief Calculates the duration of a chain A followed by a chain B, B being reached in time
+	*
+	* @param durationA - double duration of A
+	*
+	* @param earliestA - double earliest start time of A
+	*
+	* @param latestA - double latest start time of A
+	*
+	* @param travel - double travel time from the last customer of A to the first one of B
+	*
+	* @param durationB - double duration of B
+	*
+	* @param earliestB - double earliest start time of B
+	*
+	* @param latestB - double latest start time of B
+	*
+	* @return double - duration, waiting before B included
+	*/
+	public static double joinDuration(double durationA, double earliestA, double latestA, double travel,
+			double durationB, double earliestB, double latestB)
+	{
+		double wait = Math.max(earliestB - durationA - travel - latestA, 0);
+		return durationA + travel + wait + durationB;
+	}
+
+	/**
+	* @brief Calculates the earliest start time of a chain A followed by a chain B
+	*
+	* @remarks Parameters as in joinDuration()
+	*
+	* @return double - earliest start time
+	*/
+	public static double joinEarliest(double durationA, double earliestA, double latestA, double travel,
+			double earliestB)
+	{
+		double wait = Math.max(earliestB - durationA - travel - latestA, 0);
+		return Math.max(earliestB - durationA - travel, earliestA) - wait;
+	}
+
+	/**
+	* @brief Calculates the latest start time of a chain A followed by a chain B
+	*
+	* @remarks Parameters as in joinDuration(). An infeasible chain has no latest start time, so it
+	* can neither start a route nor be joined to any other chain.
+	*
+	* @return double - latest start time, Double.NEGATIVE_INFINITY if B is reached late
+	*/
+	public static double joinLatest(double durationA, double earliestA, double latestA, double travel,
+			double latestB)
+	{
+		if (!canJoin(durationA, earliestA, latestA, travel, 0, latestB))
+		{
+			return Double.NEGATIVE_INFINITY;
+		}
+		return Math.min(latestB - durationA - travel, latestA);
+	}
+
+	/**
+	* @brief Checks whether a chain can be served by a route leaving the depot and going back to it
+	*
+	* @param duration - double duration of the chain
+	*
+	* @param earliest - double earliest start time of the chain
+	*
+	* @param latest - double latest start time of the chain
+	*
+	* @param depot - Node depot, its ready time is the earliest departure and its due time the latest return
+	*
+	* @param outTime - double travel time from the depot to the first customer
+	*
+	* @param backTime - double travel time from the last customer to the depot
+	*
+	* @return boolean - true if the route is feasible
+	*/
+	public static boolean fitsDepot(double duration, double earliest, double latest, Node depot,
+			double outTime, double backTime)
+	{
+		double start = Math.max(depot.getReadyTime() + outTime, earliest);
+		return start <= latest && start + duration + backTime <= depot.getDueTime();
+	}
+}
@@ -16,6 +16,7 @@
 
 package srgcwscs;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 
@@ -34,6 +35,10 @@ import java.util.Arrays;
 **/
 public class SRGCWSCS 
 {
+	/**
+     * @brief Share of the best costs a randomized solution may exceed and still have its routes improved
+     */
+    private static final float IMPROVEMENT_MARGIN = 0.03f;
 
 	/**
      * @brief Set of characteristics for the test to be run. InstanceName, Constraints, Maximiun Computing time,...
@@ -55,16 +60,71 @@ public class SRGCWSCS
      */
     private RandCWS cwsAlg; 
     
+    /**
+     * @brief Engine used for savings lists held in arrays of edges: cwsAlg or a SequentialCWS
+     */
+    private CwsSolver engine;
+    
+    /**
+     * @brief true to build the solutions with the sequential version of the CWS
+     */
+    private boolean sequential;
+    
+    /**
+     * @brief Engine that built the solution kept in its workspace
+     */
+    private CwsSolver lastEngine;
+    
+    /**
+     * @brief true to start the randomized iterations of the parallel CWS from a prefix of the classical CWS solution
+     */
+    private boolean partialRestart;
+    
+    /**
+     * @brief Randomized iterations run in lockstep over the savings list (null to run them one at a time)
+     */
+    private MultiLaneCWS multiLane;
+    
+    /**
+     * @brief Local search applied to the randomized solutions before they are compared with the best one (null if not used)
+     */
+    private RouteImprover improver;
+    
+    /**
+     * @brief Number of depots, the first nodes of the instance (1 for the single depot VRP)
+     */
+    private int nDepots;
+    
     /**
      * @brief CWS heuristic basic solution 
      */
     private Solution cwsSol;
+    
+    /**
+     * @brief CWS heuristic basic solution, encoded as a giant tour
+     */
+    private CompactSolution cwsEncoding;
    
     /**
      * @brief Metaheuristic improved solution
      */
     private Solution SplitAndRandSol;
     
+    /**
+     * @brief Savings lists sorted by generalized savings, used in rotation by the multi-start process (null if not used)
+     */
+    private Edge[][] generalizedSavingsLists;
+    
+    /**
+     * @brief Number of randomized iterations run so far, selects the next generalized savings list
+     */
+    private int nRandomIterations;
+    
+    /**
+     * @brief Cache of sorted savings lists (null if not used)
+     */
+    private SavingsCache savingsCache;
+    
     /**
      * @brief Execution time control
      */
@@ -78,16 +138,71 @@ public class SRGCWSCS
    	* @param inputData - Inputs representation of the different components of the problem, nodes, edges and vehicles
    	*/
     public SRGCWSCS(Test test, Inputs inputData) 
+    {
+        this(test, inputData, null);
+    }
+
+    /**
+   	* @brief SRGCWSCS Constructor using a cache of sorted savings lists
+   	*
+   	* @param test - Test characteristics for the test to be run
+   	* 
+   	* @param inputData - Inputs representation of the different components of the problem, nodes, edges and vehicles
+   	* 
+   	* @param cache - SavingsCache cache where sorted savings lists are loaded from and stored (null for no cache)
+   	*/
+    public SRGCWSCS(Test test, Inputs inputData, SavingsCache cache) 
+    {
+        this(test, inputData, cache, 1);
+    }
+
+    /**
+   	* @brief SRGCWSCS Constructor for single or multi-depot instances
+   	*
+   	* @remarks With several depots nothing is built here: the savings list and the CWS solution of a
+   	* single depot are not used, and MultiDepot builds its own ones in multiDepotSolve(). The depots
+   	* must be the first nodes of the instance. The options of the single depot solver (setSequential(),
+   	* setLanes(), setPartialRestart(), setLocalSearch(), ...) are not used by multiDepotSolve() and must not be set.
+   	*
+   	* @param test - Test characteristics for the test to be run
+   	* 
+   	* @param inputData - Inputs representation of the different components of the problem, nodes, edges and vehicles
+   	* 
+   	* @param cache - SavingsCache cache where sorted savings lists are loaded from and stored (null for no cache)
+   	* 
+   	* @param depots - int number of depots, 1 for the single depot VRP
+   	*/
+    public SRGCWSCS(Test test, Inputs inputData, SavingsCache cache, int depots) 
     {
         aTest = test;
         inputs = inputData;
-        savingsList = createSavingsList(inputs);
+        savingsCache = cache;
+        nDepots = depots;
+        if (nDepots > 1)
+        {
+        	return; // solved by multiDepotSolve()
+        }
+        if (inputs.getMappedMatrices() == null && inputs.getSavingsStore() == null && inputs.getExternalSavings() == null)
+        {
+        	if (inputs.getNEdges() > Inputs.MAX_HEAP_EDGES)
+        	{
+        		// Too many edges for an array: keep the whole list outside the heap
+        		inputs.createSavingsStore(0, false);
+        	}
+        	else
+        	{
+        		savingsList = createSavingsList(inputs);
+        	}
+        }
         cwsAlg = new RandCWS(aTest, inputs);
+        engine = cwsAlg;
         startTime = ElapsedTime.systemTime();
-        cwsSol = cwsAlg.solve(savingsList, false);
+        solveOnce(false, Float.POSITIVE_INFINITY);
+        cwsEncoding = lastEngine.getWorkspaceEncoding();
         
-        cwsSol.setTime(ElapsedTime.calcElapsed(startTime,
+        cwsEncoding.setTime(ElapsedTime.calcElapsed(startTime,
                 ElapsedTime.systemTime()));
+        cwsSol = cwsEncoding.toSolution();
         // printSolOnScreen(cwsSol, true);
     }
 
@@ -105,8 +220,8 @@ public class SRGCWSCS
         // Set initial variables
         startTime = ElapsedTime.systemTime();
         double elapsed = 0.0;
-        Solution ourBestSol = cwsSol; // our best solution so far
-        Solution newSol;
+        CompactSolution ourBestSol = improveStart(); // our best solution so far
+        CompactSolution newSol;
         int nRuns = 1;
         double maxTime = aTest.getMaxTime();                                                                
         
@@ -114,29 +229,29 @@ public class SRGCWSCS
 
         while (nRuns <= aTest.getnIterRandCWS() && elapsed < maxTime) 
         {
-        	// Find a new solution to the problem    
-            newSol = cwsAlg.solve(savingsList, true);
+        	// Find a new solution to the problem, only kept as a giant tour if it improves our best one
+            newSol = solveCandidate(ourBestSol.getCosts());
 
             // Update elapsed time
             elapsed = ElapsedTime.calcElapsed(startTime, ElapsedTime.systemTime());
 
             // Update our best solution so far
-            if (newSol.getCosts() < ourBestSol.getCosts()) 
+            if (newSol != null) 
             {
-                newSol.setTime(elapsed);
                 ourBestSol = newSol;
+                ourBestSol.setTime(elapsed);
             }
 
             // Update number of runs performed
-            nRuns++;
+            nRuns += getIterationsPerSolve();
 
         }
 
         System.out.println(aTest.getInstanceName() + " " + cwsSol.getCosts() + " "
                 + ourBestSol.getCosts() + " " + ourBestSol.getTime());
 
-        printSolOnScreen(ourBestSol, false);
-        Outputs out = new Outputs(aTest, cwsSol, ourBestSol);
+        printSolOnScreen(ourBestSol.toSolution(), false);
+        Outputs out = new Outputs(aTest, cwsSol, ourBestSol.toSolution());
 
         return out;
     }
@@ -157,8 +272,8 @@ public class SRGCWSCS
         // Set initial variables
         startTime = ElapsedTime.systemTime();
         double elapsed = 0.0;
-        Solution ourBestSol = cwsSol;
-        Solution newSol; 
+        CompactSolution ourBestSol = improveStart();
+        CompactSolution newSol;
         double maxTime = aTest.getMaxTime();
 
          
@@ -167,28 +282,28 @@ public class SRGCWSCS
         while (elapsed < maxTime) 
         {
 
-            // Find a new solution to the problem
-            newSol = cwsAlg.solve(savingsList, true);
+            // Find a new solution to the problem, only kept as a giant tour if it improves our best one
+            newSol = solveCandidate(ourBestSol.getCosts());
 
             // Update elapsed time
             elapsed = ElapsedTime.calcElapsed(startTime, ElapsedTime.systemTime());
 
             // Update our best solution so far
-            if (newSol.getCosts() < ourBestSol.getCosts()) {
-                newSol.setTime(elapsed);
+            if (newSol != null) {
                 ourBestSol = newSol;
+                ourBestSol.setTime(elapsed);
             }
             
-            nSolutions ++;
+            nSolutions += getIterationsPerSolve();
         }
 
         System.out.println("instancia: "+aTest.getInstanceName()+" costCws: "+
                 cwsSol.getCosts() +" tempCWS: "
                +cwsSol.getTime()  + " costBS: "+ ourBestSol.getCosts() 
-               + " RutesBS: "+ ourBestSol.getRoutes().size()
+               + " RutesBS: "+ ourBestSol.getNRoutes()
                + " tempBS: "+ ourBestSol.getTime() + " solutions: "+ nSolutions);
 
-        Outputs out = new Outputs(aTest, cwsSol, ourBestSol);        
+        Outputs out = new Outputs(aTest, cwsSol, ourBestSol.toSolution());        
         
         return out;
     }
@@ -213,11 +328,19 @@ public class SRGCWSCS
         Solution newSol;
         double maxTime = aTest.getMaxTime();
 
+        if (savingsList == null) 
+        {
+        	System.out.println("Error in splitAndSolve() method: splitting needs the in-heap savings list");
+        	return new Outputs(aTest, cwsSol, cwsSol);
+        }
+
+        // The split plan is built once and reused by every iteration
+        Split split = new Split(inputs, savingsList);
+
         // Multi-start iterative process
         while (elapsed < maxTime) 
         {
         	// Find a new solution to the problem
-            Split split = new Split(inputs);
             newSol = split.splitSolve(aTest, 4);
 
             // Update elapsed time
@@ -234,10 +357,370 @@ public class SRGCWSCS
 
         return out;
      }
+
+    /**
+   	* @brief Solves a multi-depot VRP returning an Output manager instance. Number of rounds will depend on time.
+   	*
+   	* @remarks The first nodes of the instance are the depots, as many as given to the constructor. The CWS
+   	* solution assigns every customer to its nearest depot, then rounds of randomized CWS iterations are run
+   	* on the depot sub-problems concurrently, re-assigning customers between rounds (see MultiDepot)
+   	* 
+   	* @return Outputs - instance to manage the results, null if the solver was built for a single depot
+   	* 
+   	* @see splitAndSolve()
+   	*/
+     public Outputs multiDepotSolve()
+     {
+        if (nDepots < 2)
+        {
+        	System.out.println("Error in multiDepotSolve() method: the solver was built for a single depot");
+        	return null;
+        }
+        startTime = ElapsedTime.systemTime();
+        double elapsed = 0.0;
+        double maxTime = aTest.getMaxTime();
+        MultiDepot multiDepot = new MultiDepot(aTest, inputs, nDepots);
+        Solution depotCwsSol;
+        Solution ourBestSol;
+        Solution newSol;
+        try
+        {
+            depotCwsSol = multiDepot.solve(1, 0); // classical CWS at the nearest depots
+            ourBestSol = depotCwsSol;
+            while (elapsed < maxTime) 
+            {
+                newSol = multiDepot.solve(1, aTest.getnIterRandCWS());
+                elapsed = ElapsedTime.calcElapsed(startTime, ElapsedTime.systemTime());
+                if (newSol != null && newSol.getCosts() < ourBestSol.getCosts()) 
+                {
+                    newSol.setTime(elapsed);
+                    ourBestSol = newSol;
+                }
+            }
+        }
+        finally
+        {
+            multiDepot.close(); // the threads are reused by every round
+        }
+        return new Outputs(aTest, depotCwsSol, ourBestSol);
+     }
    
 
+    /**
+   	* @brief Adds a new customer to the instance and updates the savings list and the CWS solution
+   	*
+   	* @remarks Only the savings of the new node are computed and merged into the sorted list, so the
+   	* update costs linear time in the size of the list instead of a full rebuild and sort
+   	* 
+   	* @param node - Node new customer
+   	*/
+    public void addNode(Node node)
+    {
+    	if (savingsList == null)
+    	{
+    		System.out.println("Error in addNode() method: incremental updates need the in-heap savings list");
+    		return;
+    	}
+    	inputs.addNode(node);
+    	updateSavingsList();
+    }
+    
+    /**
+   	* @brief Removes a customer from the instance and updates the savings list and the CWS solution
+   	* 
+   	* @param node - Node customer to be removed
+   	*/
+    public void removeNode(Node node)
+    {
+    	if (savingsList == null)
+    	{
+    		System.out.println("Error in removeNode() method: incremental updates need the in-heap savings list");
+    		return;
+    	}
+    	inputs.removeNode(node);
+    	updateSavingsList();
+    }
+    
+    /**
+   	* @brief Takes the updated savings list from the inputs, rebuilds the solvers and the local search and solves the classical CWS again
+   	*/
+    private void updateSavingsList()
+    {
+    	savingsList = inputs.getEdgeList();
+    	generalizedSavingsLists = null; // built for the previous set of nodes
+    	cwsAlg = new RandCWS(aTest, inputs);
+    	cwsAlg.setPartialRestart(partialRestart);
+    	engine = sequential ? new SequentialCWS(aTest, inputs) : cwsAlg;
+    	if (multiLane != null) // the workspaces of the lanes are sized for the previous set of nodes
+    	{
+    		multiLane = new MultiLaneCWS(aTest, inputs, multiLane.getNLanes());
+    	}
+    	if (improver != null) // so is the local search
+    	{
+    		improver = new RouteImprover(inputs, aTest);
+    	}
+    	startTime = ElapsedTime.systemTime();
+    	solveOnce(false, Float.POSITIVE_INFINITY);
+    	cwsEncoding = lastEngine.getWorkspaceEncoding();
+    	cwsEncoding.setTime(ElapsedTime.calcElapsed(startTime, ElapsedTime.systemTime()));
+    	cwsSol = cwsEncoding.toSolution();
+    }
+    
+    /**
+   	* @brief Makes the randomized iterations rotate among savings lists sorted by several generalized savings
+   	*
+   	* @remarks The lists are computed in one fused pass over the distances. The classical CWS solution
+   	* is not affected. Passing null goes back to the classical savings list.
+   	* 
+   	* @param parameters - SavingsParameters[] parameterizations of the generalized savings
+   	*/
+    public void setSavingsParameters(SavingsParameters[] parameters)
+    {
+    	if (parameters == null || savingsList == null)
+    	{
+    		generalizedSavingsLists = null;
+    		return;
+    	}
+    	if (inputs.getCostMatrix() != null && inputs.getCostMatrix().isAsymmetric())
+    	{
+    		System.out.println("Error in setSavingsParameters() method: asymmetric cost matrices are not supported");
+    		generalizedSavingsLists = null;
+    		return;
+    	}
+    	generalizedSavingsLists = inputs.createGeneralizedSavingsLists(parameters);
+    	nRandomIterations = 0;
+    }
+    
+    /**
+   	* @brief Selects the version of the CWS used for savings lists held in arrays of edges and solves the CWS solution again
+   	*
+   	* @remarks The sequential version grows one route at a time, see SequentialCWS. Savings lists
+   	* stored outside the heap, on disk or in mapped matrices are always solved by the parallel version.
+   	* 
+   	* @param useSequential - boolean true for the sequential version, false for the parallel one (default)
+   	*/
+    public void setSequential(boolean useSequential)
+    {
+    	sequential = useSequential;
+    	engine = sequential ? new SequentialCWS(aTest, inputs) : cwsAlg;
+    	startTime = ElapsedTime.systemTime();
+    	solveOnce(false, Float.POSITIVE_INFINITY);
+    	cwsEncoding = lastEngine.getWorkspaceEncoding();
+    	cwsEncoding.setTime(ElapsedTime.calcElapsed(startTime, ElapsedTime.systemTime()));
+    	cwsSol = cwsEncoding.toSolution();
+    }
+    
+    /**
+   	* @brief Makes the randomized iterations of the parallel CWS start from a prefix of the classical CWS solution
+   	*
+   	* @remarks Only for the savings list held in an array of edges, see RandCWS.setPartialRestart()
+   	* 
+   	* @param restart - boolean true to enable partial restarts
+   	*/
+    public void setPartialRestart(boolean restart)
+    {
+    	partialRestart = restart;
+    	cwsAlg.setPartialRestart(restart);
+    }
+    
+    /**
+   	* @brief Runs the randomized iterations in lockstep, several of them in each pass over the savings list
+   	*
+   	* @remarks Each edge of the list is read once for all the lanes, see MultiLaneCWS. Not used while
+   	* the randomized iterations rotate among generalized savings lists.
+   	* 
+   	* @param nLanes - int number of iterations run in each pass, 1 to run them one at a time (default)
+   	*/
+    public void setLanes(int nLanes)
+    {
+    	multiLane = nLanes > 1 ? new MultiLaneCWS(aTest, inputs, nLanes) : null;
+    }
+    
+    /**
+   	* @brief Improves the routes of the randomized solutions with 2-opt and or-opt moves before comparing them with the best one
+   	*
+   	* @remarks Intra-route moves only, see RouteImprover. The classical CWS solution is reported as it is
+   	* built, but the best solution starts from its improved routes.
+   	* 
+   	* @param localSearch - boolean true to enable the local search
+   	*/
+    public void setLocalSearch(boolean localSearch)
+    {
+    	improver = localSearch ? new RouteImprover(inputs, aTest) : null;
+    }
+    
+    /**
+   	* @brief Gets the solution the multi-start process starts from
+   	* 
+   	* @return CompactSolution - the classical CWS solution, with its routes improved if the local search is set
+   	*/
+    private CompactSolution improveStart()
+    {
+    	if (improver == null)
+    	{
+    		return cwsEncoding;
+    	}
+    	CompactSolution start = improver.improve(cwsEncoding);
+    	start.setTime(cwsEncoding.getTime());
+    	return start;
+    }
+    
+    /**
+   	* @brief Runs one randomized CWS iteration and gets its solution if it improves the best one so far
+   	*
+   	* @remarks With the local search set, the iterations are only abandoned when they can not get within
+   	* IMPROVEMENT_MARGIN of the best costs, and the routes of the solutions left are improved before the comparison
+   	* 
+   	* @param bestCosts - float costs of the best solution so far
+   	* 
+   	* @return CompactSolution - new solution, null if it does not improve the best one
+   	*/
+    private CompactSolution solveCandidate(float bestCosts)
+    {
+    	if (improver == null)
+    	{
+    		return solveOnce(true, bestCosts) < bestCosts ? lastEngine.getWorkspaceEncoding() : null;
+    	}
+    	float maxCosts = bestCosts * (1 + IMPROVEMENT_MARGIN);
+    	if (solveOnce(true, maxCosts, bestCosts) >= maxCosts)
+    	{
+    		return null;
+    	}
+    	CompactSolution candidate = improver.improve(lastEngine.getWorkspaceEncoding());
+    	return candidate.getCosts() < bestCosts ? candidate : null;
+    }
+    
+    /**
+   	* @brief Gets the number of randomized iterations run by each call to solveOnce()
+   	* 
+   	* @return int - number of lanes, 1 if the iterations are run one at a time
+   	*/
+    private int getIterationsPerSolve()
+    {
+    	return multiLane != null && generalizedSavingsLists == null ? multiLane.getNLanes() : 1;
+    }
+    
+    /**
+	 * @brief Runs one CWS iteration, reading the savings list from the heap, a savings store, a file sorted on disk or the mapped matrices
+	 *
+	 * @remarks Randomized iterations rotate among the generalized savings lists when they are set. The
+	 * solution is built in the workspace of the solver, see CwsSolver.getWorkspaceSolution(). Lists in
+	 * arrays of edges are solved by the selected engine, the other ones by the parallel CWS. With lanes
+	 * set, each randomized call runs all of them in a single pass and keeps the best solution. The
+	 * iteration is abandoned as soon as it can not improve the incumbent.
+	 *    	
+	 * @param useRandomSelection - boolean false for the classical CWS solution
+	 * 
+	 * @param incumbentCosts - float costs of the best solution so far (Float.POSITIVE_INFINITY for none)
+	 * 
+	 * @return float - costs of the new solution, Float.POSITIVE_INFINITY if the iteration has been abandoned
+	 */
+    private float solveOnce(boolean useRandomSelection, float incumbentCosts)
+    {
+    	return solveOnce(useRandomSelection, incumbentCosts, incumbentCosts);
+    }
+    
+    /**
+	 * @brief Runs one CWS iteration, abandoning it as soon as it can not get below a given bound
+	 *
+	 * @remarks The bound may be looser than the incumbent costs when the solutions are improved by the local
+	 * search afterwards; the partial restarts of the parallel CWS only take the solutions below the incumbent
+	 * costs as improvements, see RandCWS.solveInWorkspace(Edge[], boolean, float, float)
+	 *    	
+	 * @param useRandomSelection - boolean false for the classical CWS solution
+	 * 
+	 * @param maxCosts - float costs above which the iteration is abandoned
+	 * 
+	 * @param incumbentCosts - float costs of the best solution so far (Float.POSITIVE_INFINITY for none)
+	 * 
+	 * @return float - costs of the new solution, Float.POSITIVE_INFINITY if the iteration has been abandoned
+	 */
+    private float solveOnce(boolean useRandomSelection, float maxCosts, float incumbentCosts)
+    {
+    	if (useRandomSelection && generalizedSavingsLists != null)
+    	{
+    		Edge[] list = generalizedSavingsLists[nRandomIterations % generalizedSavingsLists.length];
+    		nRandomIterations++;
+    		lastEngine = engine;
+    		return engine.solveInWorkspace(list, true, maxCosts);
+    	}
+    	if (useRandomSelection && multiLane != null)
+    	{
+    		lastEngine = multiLane;
+    		if (savingsList != null)
+    		{
+    			return multiLane.solveInWorkspace(savingsList, true, maxCosts);
+    		}
+    		if (inputs.getSavingsStore() != null)
+    		{
+    			return multiLane.solveInWorkspace(inputs.getSavingsStore(), true, maxCosts);
+    		}
+    		if (inputs.getExternalSavings() != null)
+    		{
+    			return solveFromDisk(true, maxCosts);
+    		}
+    		return multiLane.solveInWorkspace(inputs.getMappedMatrices().getSavingsStore(), true, maxCosts);
+    	}
+    	if (savingsList == null)
+    	{
+    		lastEngine = cwsAlg;
+    		if (inputs.getSavingsStore() != null)
+    		{
+    			return cwsAlg.solveInWorkspace(inputs.getSavingsStore(), useRandomSelection, maxCosts);
+    		}
+    		if (inputs.getExternalSavings() != null)
+    		{
+    			return solveFromDisk(useRandomSelection, maxCosts);
+    		}
+    		return cwsAlg.solveInWorkspace(inputs.getMappedMatrices(), useRandomSelection, maxCosts);
+    	}
+    	lastEngine = engine;
+    	if (engine == cwsAlg)
+    	{
+    		return cwsAlg.solveInWorkspace(savingsList, useRandomSelection, maxCosts, incumbentCosts);
+    	}
+    	return engine.solveInWorkspace(savingsList, useRandomSelection, maxCosts);
+    }
+
+	/**
+	 * @brief Runs one CWS iteration reading sequentially the savings list sorted on disk
+	 *    	
+	 * @param useRandomSelection - boolean false for the classical CWS solution
+	 * 
+	 * @param incumbentCosts - float costs of the best solution so far (Float.POSITIVE_INFINITY for none)
+	 * 
+	 * @return float - costs of the new solution, the CWS initial (dummy) solution if the sorted file can not be read
+	 */
+    private float solveFromDisk(boolean useRandomSelection, float incumbentCosts)
+    {
+    	SavingsReader reader = null;
+    	try
+    	{
+    		reader = inputs.getExternalSavings().open();
+    		if (lastEngine == multiLane)
+    		{
+    			return multiLane.solveInWorkspace(reader, useRandomSelection, incumbentCosts);
+    		}
+    		return cwsAlg.solveInWorkspace(reader, useRandomSelection, incumbentCosts);
+    	}
+    	catch (IOException exception)
+    	{
+    		System.out.println("Error reading sorted savings: " + exception);
+    		return lastEngine.resetWorkspace();
+    	}
+    	finally
+    	{
+    		if (reader != null)
+    		{
+    			reader.close();
+    		}
+    	}
+    }
+
 	/**
 	 * @brief Create a savings list according to CWS heuristic
+	 *
+	 * @remarks When a savings cache is configured, the sorted list is loaded from it if available
 	 *    	
 	 * @param input - Inputs inputs manager instance
 	 * 
@@ -245,10 +728,26 @@ public class SRGCWSCS
 	 */
     private Edge[] createSavingsList(Inputs input) 
     {
+    	// Reuse a list sorted in a previous run for the same geometry
+    	if (savingsCache != null)
+    	{
+    		Edge[] cached = savingsCache.load(input);
+    		if (cached != null)
+    		{
+    			input.setEdgeList(cached);
+    			return cached;
+    		}
+    	}
+    	
         input.fillEdgeList();
         Edge[] array = input.getEdgeList();//create the array that contain the edges
         // Sort using the compareTo() method of the Edge class (TIE ISSUE #1)
         Arrays.sort(array);
+        
+        if (savingsCache != null)
+        {
+        	savingsCache.store(input, array);
+        }
         return array;
     }
 
@@ -0,0 +1,313 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+* @class SavingsCache srgcwscs.SavingsCache
+*
+* @brief This class stores sorted savings lists in a cache directory, so repeated runs over the
+* same instance do not need to recompute and sort them again.
+*
+* @remarks Each list is stored in a binary file named after a SHA-1 hash of the node coordinates
+* (the depot being node 0) and of the external cost matrix, if any. A change in the geometry gives
+* a new key, and a file whose header does not match the instance is deleted and rebuilt, so stale
+* entries are never used.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class SavingsCache
+{
+	/**
+     * @brief Magic number of the cache files ("CWSC")
+     */
+	private static final int MAGIC = 0x43575343;
+
+	/**
+     * @brief File format version, it must be increased whenever the savings definition changes
+     */
+	private static final int VERSION = 2;
+
+	/**
+     * @brief Length of the SHA-1 key in bytes
+     */
+	private static final int KEY_SIZE = 20;
+
+	/**
+     * @brief Header size in bytes: magic, version, nNodes, nEdges and key
+     */
+	private static final int HEADER_SIZE = 16 + KEY_SIZE;
+
+	/**
+     * @brief Size of an edge record in bytes: origin, end, costs, savings
+     */
+	private static final int RECORD_SIZE = 24;
+
+	/**
+     * @brief Number of records read at once
+     */
+	private static final int RECORDS_PER_READ = 8192;
+
+	/**
+     * @brief Cache directory
+     */
+	private File directory;
+
+	/**
+	* @brief SavingsCache Constructor
+	*
+	* @param directoryPath - String path of the cache directory, created if it does not exist
+	*/
+	public SavingsCache(String directoryPath)
+	{
+		directory = new File(directoryPath);
+	}
+
+	/**
+	* @brief Loads the sorted savings list of an instance from the cache
+	*
+	* @param inputs - Inputs instance whose savings list is requested
+	*
+	* @return Edge[] - sorted savings list, null if it is not cached
+	*/
+	public Edge[] load(Inputs inputs)
+	{
+		Node[] nodes = inputs.getNodeList();
+		byte[] key = calcKey(inputs);
+		File file = getFile(key);
+		if (!file.exists())
+		{
+			return null;
+		}
+
+		Edge[] edges = null;
+		try
+		{
+			edges = read(file, nodes, (int) inputs.getNEdges(), key); // only used for lists that fit in an array
+		}
+		catch (IOException exception)
+		{
+			System.out.println("Error reading savings cache: " + exception);
+		}
+		if (edges == null)
+		{
+			file.delete(); // stale or corrupted entry
+		}
+		return edges;
+	}
+
+	/**
+	* @brief Stores the sorted savings list of an instance in the cache
+	*
+	* @param inputs - Inputs instance the savings list belongs to
+	*
+	* @param sortedEdges - Edge[] sorted savings list
+	*/
+	public void store(Inputs inputs, Edge[] sortedEdges)
+	{
+		Node[] nodes = inputs.getNodeList();
+		byte[] key = calcKey(inputs);
+		File file = getFile(key);
+		File tmpFile = new File(directory, file.getName() + ".tmp");
+
+		IdentityHashMap<Node, Integer> index = new IdentityHashMap<Node, Integer>();
+		for (int i = 0; i < nodes.length; i++)
+		{
+			index.put(nodes[i], i);
+		}
+
+		try
+		{
+			if (!directory.exists() && !directory.mkdirs())
+			{
+				throw new IOException("Unable to create directory " + directory);
+			}
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16));
+			try
+			{
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(nodes.length);
+				out.writeInt(sortedEdges.length);
+				out.write(key);
+				for (int k = 0; k < sortedEdges.length; k++)
+				{
+					Edge edge = sortedEdges[k];
+					out.writeInt(index.get(edge.getOrigin()));
+					out.writeInt(index.get(edge.getEnd()));
+					out.writeDouble(edge.getCosts());
+					out.writeDouble(edge.getSavings());
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+
+			// Publish the entry only once it is complete
+			file.delete();
+			if (!tmpFile.renameTo(file))
+			{
+				throw new IOException("Unable to rename " + tmpFile);
+			}
+		}
+		catch (IOException exception)
+		{
+			System.out.println("Error writing savings cache: " + exception);
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	* @brief Reads a cache file
+	*
+	* @return Edge[] - sorted savings list, null if the file does not belong to the instance
+	*/
+	private Edge[] read(File file, Node[] nodes, int nEdges, byte[] key) throws IOException
+	{
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			FileChannel channel = in.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header);
+			byte[] storedKey = new byte[KEY_SIZE];
+			if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != nodes.length
+					|| header.getInt() != nEdges)
+			{
+				return null;
+			}
+			header.get(storedKey);
+			if (!Arrays.equals(key, storedKey)
+					|| channel.size() != HEADER_SIZE + (long) nEdges * RECORD_SIZE)
+			{
+				return null;
+			}
+
+			Edge[] edges = new Edge[nEdges];
+			ByteBuffer buffer = ByteBuffer.allocateDirect(RECORDS_PER_READ * RECORD_SIZE);
+			int k = 0;
+			while (k < nEdges)
+			{
+				int nRecords = Math.min(RECORDS_PER_READ, nEdges - k);
+				buffer.clear();
+				buffer.limit(nRecords * RECORD_SIZE);
+				readFully(channel, buffer);
+				for (int r = 0; r < nRecords; r++)
+				{
+					Node origin = nodes[buffer.getInt()];
+					Node end = nodes[buffer.getInt()];
+					double costs = buffer.getDouble();
+					double savings = buffer.getDouble();
+					edges[k++] = new Edge(origin, end, costs, savings);
+				}
+			}
+			return edges;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	* @brief Fills a buffer from a channel and flips it for reading
+	*/
+	private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer) < 0)
+			{
+				throw new IOException("Unexpected end of savings cache file");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	* @brief Gets the cache file for a given key
+	*/
+	private File getFile(byte[] key)
+	{
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < key.length; i++)
+		{
+			name.append(Character.forDigit((key[i] >> 4) & 0xF, 16));
+			name.append(Character.forDigit(key[i] & 0xF, 16));
+		}
+		return new File(directory, name.append(".sav").toString());
+	}
+
+	/**
+	* @brief Calculates the cache key of an instance, a SHA-1 hash of its node coordinates and costs
+	*
+	* @param inputs - Inputs instance, the depot in position 0
+	*
+	* @return byte[] - instance key
+	*/
+	public static byte[] calcKey(Inputs inputs)
+	{
+		Node[] nodes = inputs.getNodeList();
+		CostMatrix costMatrix = inputs.getCostMatrix();
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			ByteBuffer buffer = ByteBuffer.allocate(16);
+			for (int i = 0; i < nodes.length; i++)
+			{
+				buffer.clear();
+				buffer.putDouble(nodes[i].getX());
+				buffer.putDouble(nodes[i].getY());
+				digest.update(buffer.array());
+			}
+			if (costMatrix != null)
+			{
+				for (int i = 0; i < nodes.length; i++)
+				{
+					for (int j = 0; j < nodes.length; j++)
+					{
+						buffer.clear();
+						buffer.putDouble(costMatrix.getCost(nodes[i].getId(), nodes[j].getId()));
+						digest.update(buffer.array(), 0, 8);
+					}
+				}
+			}
+			return digest.digest();
+		}
+		catch (NoSuchAlgorithmException exception)
+		{
+			throw new IllegalStateException("SHA-1 is not available", exception);
+		}
+	}
+}
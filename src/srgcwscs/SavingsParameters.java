@@ -0,0 +1,111 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+/**
+* @class SavingsParameters srgcwscs.SavingsParameters
+*
+* @brief This class represents a parameterization of the generalized savings
+* s(i,j) = d(0,i) + d(0,j) - lambda * d(i,j) + mu * |d(0,i) - d(0,j)| + nu * (q(i) + q(j)) / q-bar
+*
+* @remarks lambda controls the route shape, mu the asymmetry between the depot distances and nu
+* the weight of the demands (q-bar is the mean customer demand). lambda = 1, mu = nu = 0 gives the
+* classical Clarke & Wright savings.
+*
+* @bibliography Altinel, I.K., and Oncan, T. (2005). A new enhancement of the Clarke and Wright
+* savings heuristic for the capacitated vehicle routing problem. Journal of the Operational Research
+* Society, 56(8), 954-961.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class SavingsParameters
+{
+	/**
+     * @brief Route shape parameter
+     */
+	private double lambda;
+
+	/**
+     * @brief Asymmetry parameter
+     */
+	private double mu;
+
+	/**
+     * @brief Demand parameter
+     */
+	private double nu;
+
+	/**
+     * @brief SavingsParameters Constructor
+     *
+     * @param lambda - double route shape parameter
+     *
+     * @param mu - double asymmetry parameter
+     *
+     * @param nu - double demand parameter
+     */
+	public SavingsParameters(double lambda, double mu, double nu)
+	{
+		this.lambda = lambda;
+		this.mu = mu;
+		this.nu = nu;
+	}
+
+	/**
+     * @brief Gets the route shape parameter
+     *
+     * @return double - lambda
+     */
+	public double getLambda()
+	{
+		return lambda;
+	}
+
+	/**
+     * @brief Gets the asymmetry parameter
+     *
+     * @return double - mu
+     */
+	public double getMu()
+	{
+		return mu;
+	}
+
+	/**
+     * @brief Gets the demand parameter
+     *
+     * @return double - nu
+     */
+	public double getNu()
+	{
+		return nu;
+	}
+
+	/**
+     * @brief Gets a string formatted information related to the parameters
+     *
+     * @return String - parameters
+     */
+	public String toString()
+	{
+		return "(lambda = " + lambda + ", mu = " + mu + ", nu = " + nu + ")";
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+/**
+* @interface SavingsReader srgcwscs.SavingsReader
+*
+* @brief This interface represents a sequential reader over a sorted savings list, from the
+* highest savings down, as consumed by the CWS scan.
+*
+* @remarks Readers over a SavingsStore read it in memory, readers over an ExternalSavingsSort read
+* the sorted file from disk. Node indexes refer to positions in the node list of the instance.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public interface SavingsReader
+{
+	/**
+	* @brief Moves to the next edge of the list
+	*
+	* @return boolean - false when there are no more edges
+	*/
+	boolean next();
+
+	/**
+	* @brief Gets the origin node index of the current edge
+	*
+	* @return int - origin node index
+	*/
+	int getOrigin();
+
+	/**
+	* @brief Gets the end node index of the current edge
+	*
+	* @return int - end node index
+	*/
+	int getEnd();
+
+	/**
+	* @brief Gets the savings value of the current edge
+	*
+	* @return double - savings value
+	*/
+	double getSavings();
+
+	/**
+	* @brief Releases the resources used by the reader
+	*/
+	void close();
+}
@@ -0,0 +1,422 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+import java.io.IOException;
+
+/**
+* @class SavingsStore srgcwscs.SavingsStore
+*
+* @brief This class represents a savings list stored outside the Java heap and indexed by long
+* positions, so it can hold more than 2^31 edges.
+*
+* @remarks Each record holds the origin index, the end index and the savings of an edge (12 bytes
+* in compact mode, where savings are floats, 16 bytes otherwise). The records live in a LargeBuffer,
+* either a temporary mapped file or a file mapped by MappedMatrices. Edge costs are not stored, they are
+* recomputed from the coordinates or the cost matrix when the edge is used.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class SavingsStore
+{
+	/**
+     * @brief Size of a record in bytes: origin, end, savings
+     */
+	private static final int RECORD_SIZE = 16;
+
+	/**
+     * @brief Size of a compact record in bytes: origin, end, float savings
+     */
+	private static final int COMPACT_RECORD_SIZE = 12;
+
+	/**
+     * @brief Lists smaller than this are sorted by insertion
+     */
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	/**
+     * @brief Buffer holding the records
+     */
+	private LargeBuffer buffer;
+
+	/**
+     * @brief Byte position of the first record in the buffer
+     */
+	private long offset;
+
+	/**
+     * @brief Maximum number of records
+     */
+	private long capacity;
+
+	/**
+     * @brief Number of records stored
+     */
+	private long size;
+
+	/**
+     * @brief true if savings are stored as floats
+     */
+	private boolean compact;
+
+	/**
+     * @brief Size of a record in bytes
+     */
+	private int recordSize;
+
+	/**
+	* @brief SavingsStore Constructor, allocates an empty store in a temporary mapped file
+	*
+	* @param maxRecords - long maximum number of records
+	*
+	* @param compactValues - boolean true to store savings as floats
+	*
+	* @throws IOException if the temporary file can not be created or mapped
+	*
+	* @see LargeBuffer(long bytes)
+	*/
+	public SavingsStore(long maxRecords, boolean compactValues) throws IOException
+	{
+		this(new LargeBuffer(Math.max(1, maxRecords * getRecordSize(compactValues))), 0, maxRecords, 0, compactValues);
+	}
+
+	/**
+	* @brief SavingsStore Constructor over an existing buffer
+	*
+	* @param recordsBuffer - LargeBuffer buffer holding the records
+	*
+	* @param firstRecord - long byte position of the first record
+	*
+	* @param maxRecords - long maximum number of records
+	*
+	* @param nRecords - long number of records already stored
+	*
+	* @param compactValues - boolean true if savings are stored as floats
+	*/
+	SavingsStore(LargeBuffer recordsBuffer, long firstRecord, long maxRecords, long nRecords, boolean compactValues)
+	{
+		buffer = recordsBuffer;
+		offset = firstRecord;
+		capacity = maxRecords;
+		size = nRecords;
+		compact = compactValues;
+		recordSize = getRecordSize(compact);
+	}
+
+	/**
+	* @brief Gets the size of a record
+	*
+	* @param compact - boolean true if savings are stored as floats
+	*
+	* @return int - record size in bytes
+	*/
+	public static int getRecordSize(boolean compact)
+	{
+		return compact ? COMPACT_RECORD_SIZE : RECORD_SIZE;
+	}
+
+	/**
+	* @brief Adds a record at the end of the store
+	*
+	* @param origin - int origin node index
+	*
+	* @param end - int end node index
+	*
+	* @param savings - double savings of the edge
+	*/
+	public void add(int origin, int end, double savings)
+	{
+		if (size >= capacity)
+		{
+			throw new IllegalStateException("Savings store is full (" + capacity + " records)");
+		}
+		set(size, origin, end, savings);
+		size++;
+	}
+
+	/**
+	* @brief Removes all records, keeping the allocated memory
+	*/
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	* @brief Stores a record at a given position
+	*
+	* @param k - long position of the record
+	*
+	* @param origin - int origin node index
+	*
+	* @param end - int end node index
+	*
+	* @param savings - double savings of the edge
+	*/
+	void set(long k, int origin, int end, double savings)
+	{
+		long pos = recordPosition(k);
+		buffer.putInt(pos, origin);
+		buffer.putInt(pos + 4, end);
+		if (compact)
+		{
+			buffer.putFloat(pos + 8, (float) savings);
+		}
+		else
+		{
+			buffer.putDouble(pos + 8, savings);
+		}
+	}
+
+	/**
+	* @brief Sorts the records by ascending savings
+	*
+	* @remarks Ties are broken by origin and end so the order matches a stable sort of Inputs.fillEdgeList()
+	*/
+	public void sort()
+	{
+		sort(0, size - 1);
+	}
+
+	/**
+	* @brief Sorts in place the records between two positions (both included)
+	*/
+	private void sort(long lo, long hi)
+	{
+		while (hi - lo >= INSERTION_SORT_THRESHOLD)
+		{
+			// Median of three as pivot
+			long mid = lo + (hi - lo) / 2;
+			if (compare(mid, lo) < 0)
+			{
+				swap(mid, lo);
+			}
+			if (compare(hi, lo) < 0)
+			{
+				swap(hi, lo);
+			}
+			if (compare(hi, mid) < 0)
+			{
+				swap(hi, mid);
+			}
+			swap(mid, hi - 1);
+			long pivot = hi - 1;
+
+			long i = lo;
+			long j = hi - 1;
+			while (true)
+			{
+				while (compare(++i, pivot) < 0)
+				{
+				}
+				while (compare(--j, pivot) > 0)
+				{
+				}
+				if (i >= j)
+				{
+					break;
+				}
+				swap(i, j);
+			}
+			swap(i, hi - 1);
+
+			// Recurse into the smaller part, iterate over the bigger one
+			if (i - lo < hi - i)
+			{
+				sort(lo, i - 1);
+				lo = i + 1;
+			}
+			else
+			{
+				sort(i + 1, hi);
+				hi = i - 1;
+			}
+		}
+
+		for (long i = lo + 1; i <= hi; i++)
+		{
+			for (long j = i; j > lo && compare(j, j - 1) < 0; j--)
+			{
+				swap(j, j - 1);
+			}
+		}
+	}
+
+	/**
+	* @brief Compares two records by savings, origin and end
+	*/
+	private int compare(long a, long b)
+	{
+		double sa = getSavings(a);
+		double sb = getSavings(b);
+		if (sa < sb)
+		{
+			return -1;
+		}
+		else if (sa > sb)
+		{
+			return 1;
+		}
+		long ka = ((long) getOrigin(a) << 32) | getEnd(a);
+		long kb = ((long) getOrigin(b) << 32) | getEnd(b);
+		return ka < kb ? -1 : (ka > kb ? 1 : 0);
+	}
+
+	/**
+	* @brief Swaps two records
+	*/
+	private void swap(long a, long b)
+	{
+		long pa = recordPosition(a);
+		long pb = recordPosition(b);
+		if (compact) // 4-byte fields only, a compact record may start at a position not multiple of 8
+		{
+			for (int field = 0; field < COMPACT_RECORD_SIZE; field += 4)
+			{
+				int value = buffer.getInt(pa + field);
+				buffer.putInt(pa + field, buffer.getInt(pb + field));
+				buffer.putInt(pb + field, value);
+			}
+			return;
+		}
+		long ends = buffer.getLong(pa);
+		double value = buffer.getDouble(pa + 8);
+		buffer.putLong(pa, buffer.getLong(pb));
+		buffer.putDouble(pa + 8, buffer.getDouble(pb + 8));
+		buffer.putLong(pb, ends);
+		buffer.putDouble(pb + 8, value);
+	}
+
+	/**
+	* @brief Gets the byte position of a record
+	*/
+	private long recordPosition(long k)
+	{
+		return offset + k * recordSize;
+	}
+
+	/**
+	* @brief Opens a sequential reader over the sorted records, from the highest savings down
+	*
+	* @return SavingsReader - reader over the store
+	*/
+	public SavingsReader reader()
+	{
+		return new SavingsReader()
+		{
+			private long k = size;
+
+			public boolean next()
+			{
+				return --k >= 0;
+			}
+
+			public int getOrigin()
+			{
+				return SavingsStore.this.getOrigin(k);
+			}
+
+			public int getEnd()
+			{
+				return SavingsStore.this.getEnd(k);
+			}
+
+			public double getSavings()
+			{
+				return SavingsStore.this.getSavings(k);
+			}
+
+			public void close()
+			{
+			}
+		};
+	}
+
+	/**
+	* @brief Gets the number of records
+	*
+	* @return long - number of records stored
+	*/
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	* @brief Checks whether savings are stored as floats
+	*
+	* @return boolean - true in compact mode
+	*/
+	public boolean isCompact()
+	{
+		return compact;
+	}
+
+	/**
+	* @brief Gets the origin node index of the k-th record
+	*
+	* @param k - long position of the record
+	*
+	* @return int - origin node index
+	*/
+	public int getOrigin(long k)
+	{
+		return buffer.getInt(recordPosition(k));
+	}
+
+	/**
+	* @brief Gets the end node index of the k-th record
+	*
+	* @param k - long position of the record
+	*
+	* @return int - end node index
+	*/
+	public int getEnd(long k)
+	{
+		return buffer.getInt(recordPosition(k) + 4);
+	}
+
+	/**
+	* @brief Gets the savings value of the k-th record
+	*
+	* @param k - long position of the record
+	*
+	* @return double - savings value
+	*/
+	public double getSavings(long k)
+	{
+		if (compact)
+		{
+			return buffer.getFloat(recordPosition(k) + 8);
+		}
+		return buffer.getDouble(recordPosition(k) + 8);
+	}
+
+	/**
+	* @brief Releases the buffer of the store, deleting its temporary file if it has one
+	*
+	* @remarks The store must not be used afterwards
+	*/
+	public void close()
+	{
+		buffer.close();
+	}
+}
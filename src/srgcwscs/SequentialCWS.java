@@ -0,0 +1,431 @@
+/*
+ 	File is part of CwsMcsLib.
+
+    CwsMcsLib is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, GPLv2.
+
+    CwsMcsLib is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with CwsMcsLib.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package srgcwscs;
+
+/**
+* @class SequentialCWS srgcwscs.SequentialCWS
+*
+* @brief This class encapsulates the randomized sequential version of the Clarke & Wright Savings
+* heuristic, where routes are built one at a time: a route is started with the best edge joining
+* two unrouted customers, and it is extended at both ends until no unrouted customer can be added.
+*
+* @remarks The edges of every customer are kept in the order of the savings list, so each end of the
+* route only looks at its own candidates. Candidates which are not feasible are never looked at again:
+* their customers are already routed, or the route only gets longer and heavier while it is grown.
+* The biased randomization selects among the first feasible candidates instead of taking the best
+* one, with a geometric distribution: seeds with the beta of the test and extensions at both ends with
+* a much stronger bias towards the best candidate.
+*
+* @package srgcwscs;
+*
+* @date 191026
+*
+* @copyright GNU Public License, version 2.
+**/
+public class SequentialCWS implements CwsSolver
+{
+	/**
+     * @brief Maximum number of feasible candidates the next seed or extension is selected from
+     */
+	private static final int MAX_CANDIDATES = 8;
+
+	/**
+     * @brief Maximum number of edges looked at to find the candidates of a selection
+     */
+	private static final int SCAN_LIMIT = 64;
+
+	/**
+     * @brief Parameter of the geometric distribution used to select extensions
+     *
+     * @remarks Much closer to 1 than the beta of the test: a route grown with a worse neighbour zigzags
+     * along the rest of its extensions, so only seeds are selected with the beta of the test
+     */
+	private static final double EXTENSION_BETA = 0.97;
+
+	/**
+     * @brief Inputs a representation of the different components of the problem, nodes, edges and vehicles
+     */
+	private Inputs inputs;
+
+	/**
+     * @brief Set of characteristics for the test to be run. InstanceName, Constraints, Maximiun Computing time,...
+     */
+	private Test aTest;
+
+	/**
+     * @brief Randomness instance
+     */
+	private Randomness random;
+
+	/**
+     * @brief Workspace the solutions are built in (created on first use)
+     */
+	private CwsWorkspace workspace;
+
+	/**
+     * @brief Savings list the candidate lists have been built for
+     */
+	private Edge[] preparedList;
+
+	/**
+     * @brief Highest savings of the prepared list
+     */
+	private double listMaxSavings;
+
+	/**
+     * @brief Origin position of each edge of the list
+     */
+	private int[] edgeOrigins;
+
+	/**
+     * @brief End position of each edge of the list
+     */
+	private int[] edgeEnds;
+
+	/**
+     * @brief First entry of each customer in candidateEdges (followed by the number of entries)
+     */
+	private int[] candidateStarts;
+
+	/**
+     * @brief Edges of every customer, from the best one down
+     */
+	private int[] candidateEdges;
+
+	/**
+     * @brief Next entry of each customer in candidateEdges not discarded yet
+     */
+	private int[] candidatePositions;
+
+	/**
+     * @brief Candidates of the current selection, reused
+     */
+	private int[] selection;
+
+	/**
+	* @brief SequentialCWS Constructor
+	*
+	* @param test - Test set of characteristics for the test to be run
+	*
+	* @param varInputs - Inputs representation of the different components of the problem, nodes, edges and vehicles
+	*/
+	public SequentialCWS(Test test, Inputs varInputs)
+	{
+		aTest = test;
+		inputs = varInputs;
+		random = new Randomness(aTest, inputs);
+		selection = new int[2 * MAX_CANDIDATES];
+	}
+
+	/**
+	* @brief Solves the VRP and builds the objects of the solution
+	*
+	* @param effList - Edge[] savings list
+	*
+	* @param useRandomSelection - boolean false for the classical sequential CWS solution
+	*
+	* @return Solution - Set of nodes that resolves the VRP problem
+	*
+	* @see float solveInWorkspace(Edge[] effList, boolean useRandomSelection, float incumbentCosts)
+	*/
+	public Solution solve(Edge[] effList, boolean useRandomSelection)
+	{
+		solveInWorkspace(effList, useRandomSelection, Float.POSITIVE_INFINITY);
+		return workspace.toSolution();
+	}
+
+	/**
+	* @brief Solves the VRP in the workspace, growing one route at a time
+	*
+	* @remarks Every time a route is closed the lower bound of CwsWorkspace.calcLowerBound() is compared
+	* with the incumbent costs, using the highest savings of the list
+	*
+	* @param effList - Edge[] savings list
+	*
+	* @param useRandomSelection - boolean false for the classical sequential CWS solution
+	*
+	* @param incumbentCosts - float costs of the best solution so far (Float.POSITIVE_INFINITY for none)
+	*
+	* @return float - costs of the solution, Float.POSITIVE_INFINITY if the iteration has been abandoned
+	*/
+	public float solveInWorkspace(Edge[] effList, boolean useRandomSelection, float incumbentCosts)
+	{
+		CwsWorkspace ws = resetWorkspaceState();
+		prepare(effList);
+		System.arraycopy(candidateStarts, 0, candidatePositions, 0, candidatePositions.length);
+		if (useRandomSelection)
+		{
+			random.selectBeta();
+		}
+
+		int seedPos = effList.length - 1;
+		while (true)
+		{
+			// 1. Start a new route with an edge joining two unrouted customers
+			while (seedPos >= 0 && !isFeasibleSeed(seedPos))
+			{
+				seedPos--;
+			}
+			if (seedPos < 0)
+			{
+				break;
+			}
+			int k = useRandomSelection ? selectSeed(seedPos) : seedPos;
+			ws.merge(edgeOrigins[k], edgeEnds[k], effList[k].getCosts(), effList[k].getSavings());
+
+			// 2. Extend it at both ends while possible
+			int member = edgeOrigins[k];
+			while (true)
+			{
+				k = selectExtension(ws.getRouteHead(member), ws.getRouteTail(member), useRandomSelection);
+				if (k < 0)
+				{
+					break;
+				}
+				ws.merge(edgeOrigins[k], edgeEnds[k], effList[k].getCosts(), effList[k].getSavings());
+			}
+
+			if (ws.calcLowerBound(listMaxSavings) > incumbentCosts)
+			{
+				return Float.POSITIVE_INFINITY;
+			}
+		}
+		return (float) ws.getCosts();
+	}
+
+	/**
+	* @brief Checks whether an edge joins two unrouted customers that fit in a single route
+	*
+	* @param k - int position of the edge in the list
+	*
+	* @return boolean - true if the edge can start a route
+	*/
+	private boolean isFeasibleSeed(int k)
+	{
+		int i = edgeOrigins[k];
+		int j = edgeEnds[k];
+		return workspace.getRouteSize(i) == 1 && workspace.getRouteSize(j) == 1
+				&& workspace.canMerge(i, j, preparedList[k].getSavings());
+	}
+
+	/**
+	* @brief Selects at random the edge a new route is started with
+	*
+	* @param seedPos - int position of the best feasible seed
+	*
+	* @return int - position of the selected edge in the list
+	*/
+	private int selectSeed(int seedPos)
+	{
+		int count = 0;
+		int last = Math.max(0, seedPos - SCAN_LIMIT);
+		for (int k = seedPos; k >= last && count < MAX_CANDIDATES; k--)
+		{
+			if (k == seedPos || isFeasibleSeed(k))
+			{
+				selection[count++] = k;
+			}
+		}
+		return selection[random.nextGeometricPosition(count, random.getBeta())];
+	}
+
+	/**
+	* @brief Selects the edge the current route is extended with
+	*
+	* @param first - int first customer of the route
+	*
+	* @param last - int last customer of the route
+	*
+	* @param useRandomSelection - boolean false to take the best candidate
+	*
+	* @return int - position of the selected edge in the list, -1 if the route can not be extended
+	*/
+	private int selectExtension(int first, int last, boolean useRandomSelection)
+	{
+		int nFirst = collectCandidates(first, 0, useRandomSelection ? MAX_CANDIDATES : 1);
+		int nLast = collectCandidates(last, nFirst, useRandomSelection ? MAX_CANDIDATES : 1);
+		int count = nFirst + nLast;
+		if (count == 0)
+		{
+			return -1;
+		}
+
+		// Both groups are sorted from the best edge down: merge them in place
+		for (int a = nFirst; a < count; a++)
+		{
+			int k = selection[a];
+			int b = a;
+			while (b > 0 && selection[b - 1] < k)
+			{
+				selection[b] = selection[b - 1];
+				b--;
+			}
+			selection[b] = k;
+		}
+		return useRandomSelection ? selection[random.nextGeometricPosition(count, EXTENSION_BETA)] : selection[0];
+	}
+
+	/**
+	* @brief Collects the first feasible candidates to extend the route at one of its ends
+	*
+	* @remarks Candidates in front of the first feasible one are discarded for the rest of the iteration
+	*
+	* @param end - int customer at the end of the route
+	*
+	* @param from - int position in the selection where the candidates are stored
+	*
+	* @param maxCount - int maximum number of candidates
+	*
+	* @return int - number of candidates stored
+	*/
+	private int collectCandidates(int end, int from, int maxCount)
+	{
+		int pos = candidatePositions[end];
+		int stop = candidateStarts[end + 1];
+		while (pos < stop && !isFeasibleExtension(candidateEdges[pos], end))
+		{
+			pos++;
+		}
+		candidatePositions[end] = pos;
+
+		int count = 0;
+		int last = Math.min(stop, pos + SCAN_LIMIT);
+		for (int p = pos; p < last && count < maxCount; p++)
+		{
+			if (p == pos || isFeasibleExtension(candidateEdges[p], end))
+			{
+				selection[from + count++] = candidateEdges[p];
+			}
+		}
+		return count;
+	}
+
+	/**
+	* @brief Checks whether an edge adds an unrouted customer at one end of the current route
+	*
+	* @param k - int position of the edge in the list
+	*
+	* @param end - int customer at the end of the route
+	*
+	* @return boolean - true if the edge is feasible
+	*/
+	private boolean isFeasibleExtension(int k, int end)
+	{
+		int other = edgeOrigins[k] == end ? edgeEnds[k] : edgeOrigins[k];
+		return workspace.getRouteSize(other) == 1
+				&& workspace.canMerge(edgeOrigins[k], edgeEnds[k], preparedList[k].getSavings());
+	}
+
+	/**
+	* @brief Builds the candidate lists of every customer for a savings list
+	*
+	* @remarks The lists are kept until a different savings list is solved
+	*
+	* @param effList - Edge[] savings list
+	*/
+	private void prepare(Edge[] effList)
+	{
+		if (effList == preparedList)
+		{
+			return;
+		}
+		int n = inputs.getNodeList().length;
+		int m = effList.length;
+		edgeOrigins = new int[m];
+		edgeEnds = new int[m];
+		candidateStarts = new int[n + 1];
+		candidatePositions = new int[n];
+		listMaxSavings = 0;
+		for (int k = 0; k < m; k++)
+		{
+			edgeOrigins[k] = workspace.indexOf(effList[k].getOrigin());
+			edgeEnds[k] = workspace.indexOf(effList[k].getEnd());
+			candidateStarts[edgeOrigins[k] + 1]++;
+			candidateStarts[edgeEnds[k] + 1]++;
+			listMaxSavings = Math.max(listMaxSavings, effList[k].getSavings());
+		}
+		for (int i = 0; i < n; i++)
+		{
+			candidateStarts[i + 1] += candidateStarts[i];
+		}
+		candidateEdges = new int[2 * m];
+		int[] next = new int[n];
+		System.arraycopy(candidateStarts, 0, next, 0, n);
+		for (int k = m - 1; k >= 0; k--) // from the best edge down
+		{
+			candidateEdges[next[edgeOrigins[k]]++] = k;
+			candidateEdges[next[edgeEnds[k]]++] = k;
+		}
+		preparedList = effList;
+	}
+
+	/**
+	* @brief Restores the CWS initial (dummy) solution in the workspace
+	*
+	* @return float - costs of the dummy solution
+	*/
+	public float resetWorkspace()
+	{
+		return (float) resetWorkspaceState().getCosts();
+	}
+
+	/**
+	* @brief Builds the Solution object of the last solution found in the workspace
+	*
+	* @return Solution - Set of nodes that resolves the VRP problem
+	*/
+	public Solution getWorkspaceSolution()
+	{
+		if (workspace == null)
+		{
+			resetWorkspaceState();
+		}
+		return workspace.toSolution();
+	}
+
+	/**
+	* @brief Encodes the last solution found in the workspace as a giant tour
+	*
+	* @return CompactSolution - costs, customers route after route and route starts
+	*/
+	public CompactSolution getWorkspaceEncoding()
+	{
+		if (workspace == null)
+		{
+			resetWorkspaceState();
+		}
+		return workspace.encode();
+	}
+
+	/**
+	* @brief Creates the workspace on first use and restores its dummy solution
+	*
+	* @return CwsWorkspace - workspace of the solver
+	*/
+	private CwsWorkspace resetWorkspaceState()
+	{
+		if (workspace == null)
+		{
+			workspace = new CwsWorkspace(inputs, aTest);
+		}
+		else
+		{
+			workspace.reset();
+		}
+		return workspace;
+	}
+}
@@ -51,7 +51,7 @@ public class Solution implements Comparable<Solution>
 	private float costs;
 	
 	/**
-	 * @brief list of routes in this solution
+	 * @brief list of routes in this solution, each route knows its position (Route.solutionIndex)
 	 */
 	private ArrayList<Route> routes;
 	
@@ -59,6 +59,11 @@ public class Solution implements Comparable<Solution>
 	 * @brief elapsed computational time (in seconds)
 	 */
 	private double time; 
+	
+	/**
+	 * @brief number of routes left without a vehicle of the fleet (0 if the fleet covers every route)
+	 */
+	private int missingVehicles;
 
 	
 	/**
@@ -80,9 +85,35 @@ public class Solution implements Comparable<Solution>
 	*/
     public void addRoute(Route aRoute) 
     {
+        aRoute.setSolutionIndex(routes.size());
         routes.add(aRoute);
     }
 
+    /**
+	* @brief Removes a route from the solution in constant time
+	* 
+	* @remarks The last route of the list takes the place of the removed one, so the order of the
+	* remaining routes may change
+	* 
+	* @param aRoute - Route instance to be removed
+	*/
+    public void removeRoute(Route aRoute) 
+    {
+        int k = aRoute.getSolutionIndex();
+        if (k < 0 || k >= routes.size() || routes.get(k) != aRoute) // not added with addRoute()
+        {
+            routes.remove(aRoute);
+            return;
+        }
+        Route last = routes.remove(routes.size() - 1);
+        if (last != aRoute)
+        {
+            routes.set(k, last);
+            last.setSolutionIndex(k);
+        }
+        aRoute.setSolutionIndex(-1);
+    }
+
     /**
 	* @brief Adds a given route costs to the global solution cost
 	* 
@@ -204,6 +235,9 @@ public class Solution implements Comparable<Solution>
         s = s.concat("Sol costs: " + getCosts()
                 + "\r\n");
         s = s.concat("# of routes in sol: " + routes.size());
+        if (missingVehicles > 0) {
+            s = s.concat("\r\n# of routes without a vehicle of the fleet: " + missingVehicles);
+        }
         s = s.concat("\r\n\r\n\r\n");
         s = s.concat("List of routes (cost and nodes): \r\n\r\n");
         for (int i = 1; i <= routes.size(); i++) {
@@ -269,4 +303,24 @@ public class Solution implements Comparable<Solution>
     {
         return time;
     }
+
+    /**
+  	* @brief Updates the number of routes left without a vehicle of the fleet
+  	* 
+  	* @param missing - int number of routes without a vehicle
+  	*/
+    public void setMissingVehicles(int missing) 
+    {
+        missingVehicles = missing;
+    }
+
+    /**
+  	* @brief Gets the number of routes left without a vehicle of the fleet
+  	* 
+  	* @returns int - number of routes without a vehicle, 0 if the fleet covers every route
+  	*/
+    public int getMissingVehicles() 
+    {
+        return missingVehicles;
+    }
 }
@@ -24,6 +24,11 @@ import java.util.LinkedList;
 *
 * @brief This class represents the splitting process to solve CWS-MCS over small problem regions
 * 
+* @remarks The split plan (regions, their inputs, savings lists and CWS solvers) is built once in
+* the constructor and reused by every call to splitSolve(), so each iteration only runs the CWS
+* scans. The savings list of a region is filtered from the sorted global list, which keeps the
+* sorted order, instead of being computed and sorted again.
+* 
 * @authors Juan Carlos, Marcos Fernandez
 *
 * @date 090315
@@ -52,6 +57,11 @@ public class Split
 	 */
     private LinkedList<Edge[]> listOfSavingList;
     
+    /**
+	 * @brief CWS solver of each region
+	 */
+    private RandCWS[] regionSolvers;
+    
     /**
 	 * @brief solution split
 	 */
@@ -69,11 +79,39 @@ public class Split
 	 * @param inputs - Inputs
 	 */
     public Split(Inputs inputs) 
+    {
+        this(inputs, null);
+    }
+
+    /**
+	 * @brief Split constructor reusing the sorted savings list of the whole instance
+	 * 
+	 * @param inputs - Inputs
+	 * 
+	 * @param sortedSavingsList - Edge[] savings list of the instance sorted by ascending savings, null to build it
+	 */
+    public Split(Inputs inputs, Edge[] sortedSavingsList) 
     {
         vrpnodes = inputs.getNodeList();
         vrpCenter = calcGeometricCenter(vrpnodes);
         inputsList = splitVrpnodes(vrpnodes);
         nVehicles=inputs.getVehiclesList().size();
+        
+        // Every region is served by the same fleet
+        for (int i = 0; i < inputsList.length; i++) 
+        {
+            for (int v = 0; v < nVehicles; v++) 
+            {
+                inputsList[i].setVehicle(inputs.getVehicle(v));
+            }
+        }
+        
+        if (sortedSavingsList == null) 
+        {
+            sortedSavingsList = createSavingsList(inputs);
+        }
+        listOfSavingList = filterSavingsLists(sortedSavingsList);
+        regionSolvers = new RandCWS[inputsList.length];
     }
 
     /**
@@ -143,7 +181,6 @@ public class Split
         for (int i = 0; i < list.length; i++)
         {
             list[i] =new Inputs(num[i]);
-            System.out.println("El tamañ],nVehiclo de la lista "+i+" es "+num[i]);
         }
         
         num[0] = 1;
@@ -171,7 +208,6 @@ public class Split
             } 
             else if ((vrpnodes[i].getX() < vrpCenter[0]) && (vrpnodes[i].getY() < vrpCenter[1])) 
             {
-                System.out.println(num[2]);
                 list[2].setNode(num[2], vrpnodes[i]);
                 num[2]++;
             } else {
@@ -180,12 +216,61 @@ public class Split
             }
         }
         
-        for (int i = 0; i < list.length; i++) 
+        return list;
+    }
+
+    /**
+	 * @brief Gets the savings list of every region from the sorted savings list of the whole instance
+	 * 
+	 * @remarks An edge belongs to a region when both of its nodes do. The savings of an edge only
+	 * depend on its nodes and the depot, which every region shares, so the filtered lists keep the
+	 * order of the global one and do not need to be sorted again.
+	 * 
+	 * @param sortedSavingsList - Edge[] savings list of the instance sorted by ascending savings
+	 * 
+	 * @return LinkedList<Edge[]> - sorted savings list of each region, in the order of inputsList
+	 */
+    private LinkedList<Edge[]> filterSavingsLists(Edge[] sortedSavingsList) 
+    {
+        // 1. Region of every node, indexed by node id
+        int maxId = 0;
+        for (int i = 0; i < vrpnodes.length; i++) 
+        {
+            maxId = Math.max(maxId, vrpnodes[i].getId());
+        }
+        int[] region = new int[maxId + 1];
+        for (int r = 0; r < inputsList.length; r++) 
+        {
+            Node[] regionNodes = inputsList[r].getNodeList();
+            for (int i = 1; i < regionNodes.length; i++) // the depot is in every region
+            {
+                region[regionNodes[i].getId()] = r;
+            }
+        }
+        
+        // 2. Keep the edges whose nodes are in the same region, in the same order
+        Edge[][] lists = new Edge[inputsList.length][];
+        int[] count = new int[inputsList.length];
+        for (int r = 0; r < inputsList.length; r++) 
+        {
+            lists[r] = new Edge[(int) inputsList[r].getNEdges()];
+        }
+        for (int k = 0; k < sortedSavingsList.length; k++) 
         {
-            listOfSavingList.add(createSavingsList(list[i]));
+            Edge edge = sortedSavingsList[k];
+            int r = region[edge.getOrigin().getId()];
+            if (r == region[edge.getEnd().getId()]) 
+            {
+                lists[r][count[r]++] = edge;
+            }
         }
         
-        return list;
+        LinkedList<Edge[]> savingLists = new LinkedList<Edge[]>();
+        for (int r = 0; r < inputsList.length; r++) 
+        {
+            savingLists.add(lists[r]);
+        }
+        return savingLists;
     }
 
     /**
@@ -214,19 +299,25 @@ public class Split
         
         for (int i = 0; i < inputsList.length; i++) 
         {
-            RandCWS cwsAlg = new RandCWS(atest, inputsList[i]);
+            if (regionSolvers[i] == null) 
+            {
+                regionSolvers[i] = new RandCWS(atest, inputsList[i]);
+            }
+            RandCWS cwsAlg = regionSolvers[i];
+            Edge[] savingsList = listOfSavingList.get(i);
             int a = 1;
-            solutions[i] = cwsAlg.solve(listOfSavingList.get(i), true);
+            solutions[i] = cwsAlg.solve(savingsList, true);
             a++;
             Solution newSol = null;
             
             while (a <= splitIterator) 
             {
-                newSol = cwsAlg.solve(listOfSavingList.get(i), true);
+                newSol = cwsAlg.solve(savingsList, true);
                 if (newSol.getCosts() < solutions[i].getCosts()) 
                 {
                     solutions[i] = newSol;
                 }
+                a++;
             }
             
             splitSolution.setCosts(splitSolution.getCosts() + solutions[i].getCosts());
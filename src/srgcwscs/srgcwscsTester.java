@@ -40,6 +40,41 @@ import java.util.ArrayList;
 **/
 public class srgcwscsTester 
 {
+	/**
+     * @brief Instances with more nodes than this keep their distance matrix and savings list in mapped files
+     */
+	private static final int MAPPED_MATRICES_MIN_NODES = 20000;
+	
+	/**
+     * @brief true to store mapped distances and savings as 32-bit floats (half the memory, rounded values)
+     */
+	private static final boolean COMPACT_MAPPED_MATRICES = false;
+	
+	/**
+     * @brief true to build the solutions with the sequential CWS instead of the parallel one
+     */
+	private static final boolean SEQUENTIAL_CWS = false;
+	
+	/**
+     * @brief Randomized iterations run in each pass over the savings list (1 to run them one at a time)
+     */
+	private static final int CWS_LANES = 1;
+	
+	/**
+     * @brief true to start the randomized iterations from a prefix of the classical CWS solution
+     */
+	private static final boolean PARTIAL_RESTART = false;
+	
+	/**
+     * @brief Number of depots, the first nodes of every instance (1 for the single depot VRP)
+     */
+	private static final int DEPOTS = 1;
+	
+	/**
+     * @brief true to improve the routes of the randomized solutions with 2-opt and or-opt moves
+     */
+	private static final boolean LOCAL_SEARCH = false;
+	
     /**
      * @brief Application main method, makes the basic input, solving and output calls
      * 
@@ -59,6 +94,9 @@ public class srgcwscsTester
         TestsPlanner planner = new TestsPlanner(testsFilePath);
         ArrayList<Test> testsList = planner.getTestsList();
 
+        // Sorted savings lists are reused between runs over the same geography
+        SavingsCache savingsCache = new SavingsCache("inputs" + File.separator + "savingsCache");
+
         // 2. For each test (instanceName + testParameters) in the list...
         int nTests = testsList.size();
         for (int k = 0; k < nTests; k++) 
@@ -76,10 +114,34 @@ public class srgcwscsTester
             Inputs inputs = inMngr.getInputs();
             // 2.1.2 Get the vcap inputs
 
+            // 2.1.3 Huge instances are solved from memory-mapped matrices, reused in later runs
+            if (inputs.getNodeList().length > MAPPED_MATRICES_MIN_NODES)
+            {
+            	inputs.mapMatrices("inputs" + File.separator + "mapped", aTest.getInstanceName(), COMPACT_MAPPED_MATRICES);
+            }
+
 
             // 2.2. Use the SR-GCWS-CS algorithm to solve the instance
-            SRGCWSCS algorithm = new SRGCWSCS(aTest, inputs);
-            Outputs output = algorithm.solveInTime();
+            SRGCWSCS algorithm = new SRGCWSCS(aTest, inputs, savingsCache, DEPOTS);
+            Outputs output;
+            if (DEPOTS > 1)
+            {
+            	output = algorithm.multiDepotSolve();
+            }
+            else
+            {
+            	if (SEQUENTIAL_CWS)
+            	{
+            		algorithm.setSequential(true);
+            	}
+            	if (CWS_LANES > 1)
+            	{
+            		algorithm.setLanes(CWS_LANES);
+            	}
+            	algorithm.setPartialRestart(PARTIAL_RESTART);
+            	algorithm.setLocalSearch(LOCAL_SEARCH);
+            	output = algorithm.solveInTime();
+            }
             //2.3. Print out the results to a file with local output
             String outputsFilePath = "outputs" + File.separator
                     + aTest.getInstanceName() + "_" + aTest.getSeed() + "_outputs.txt";